@@ -0,0 +1,84 @@
+package benchmarks;
+
+import adduct.Adduct;
+import adduct.AdductBatch;
+import adduct.AdductDescriptor;
+import adduct.AdductRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mass conversions of one adduct, per value
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AdductBenchmark {
+
+    private static final int VALUES = 1024;
+
+    @Param({"[M+H]+", "[M+2H]2+", "[2M+Na]+", "[M-H]−"})
+    public String adduct;
+
+    private double[] values;
+    private double[] output;
+    private AdductDescriptor descriptor;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(24);
+        values = new double[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = 400 + random.nextDouble() * 1200;
+        }
+        output = new double[VALUES];
+        descriptor = AdductRegistry.get(adduct);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void monoisotopicMassFromMz(Blackhole blackhole) {
+        for (double mz : values) {
+            blackhole.consume(Adduct.getMonoisotopicMassFromMZ(mz, adduct));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void mzFromMonoisotopicMass(Blackhole blackhole) {
+        for (double mass : values) {
+            blackhole.consume(Adduct.getMZFromMonoisotopicMass(mass, adduct));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public double[] monoisotopicMassesFromMzBatch() {
+        AdductBatch.monoisotopicMassesFromMz(values, 0, VALUES, descriptor, output, 0);
+        return output;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public double[] mzFromMonoisotopicMassesBatch() {
+        AdductBatch.mzFromMonoisotopicMasses(values, 0, VALUES, descriptor, output, 0);
+        return output;
+    }
+}
@@ -0,0 +1,96 @@
+package benchmarks;
+
+import adduct.AdductDetectionStrategy;
+import adduct.MassDifferenceAdductDetection;
+import adduct.NestedLoopAdductDetection;
+import adduct.SortedPeakAdductDetection;
+import lipid.AdductDetectionSession;
+import lipid.Annotation;
+import lipid.IonizationMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adduct detection per annotation: {@link Annotation#detectAdductFromSignals(IonizationMode, double,
+ * AdductDetectionStrategy)} with each strategy, and the rules of adducts.drl through an {@link AdductDetectionSession}
+ * ("rules"), which inserts and removes the facts of the whole batch every invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AdductDetectionBenchmark {
+
+    private static final int ANNOTATIONS = 256;
+
+    @Param({"2", "20", "200"})
+    public int signals;
+
+    @Param({"sorted", "massDifference", "nestedLoop", "rules"})
+    public String strategy;
+
+    private Annotation[] annotations;
+    private List<Annotation> batch;
+    private AdductDetectionStrategy detection;
+    private AdductDetectionSession session;
+
+    @Setup
+    public void setup() {
+        annotations = Datasets.adductGroups(ANNOTATIONS, signals, 24);
+        batch = Arrays.asList(annotations);
+        switch (strategy) {
+            case "sorted":
+                detection = new SortedPeakAdductDetection();
+                break;
+            case "massDifference":
+                detection = new MassDifferenceAdductDetection();
+                break;
+            case "nestedLoop":
+                detection = new NestedLoopAdductDetection();
+                break;
+            default:
+                session = new AdductDetectionSession();
+                break;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ANNOTATIONS)
+    public void detectAdductFromSignals(Blackhole blackhole) {
+        if (session != null) {
+            session.detect(batch, 0.01);
+            for (Annotation annotation : annotations) {
+                blackhole.consume(annotation.getAdduct());
+            }
+            return;
+        }
+        for (Annotation annotation : annotations) {
+            blackhole.consume(annotation.detectAdductFromSignals(IonizationMode.POSITIVE, 0.01, detection));
+        }
+    }
+}
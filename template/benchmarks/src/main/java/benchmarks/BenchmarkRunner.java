@@ -0,0 +1,171 @@
+package benchmarks;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Runs the benchmarks with the GC profiler and compares time and allocation against the stored baselines.
+ * <p>
+ * Every benchmark measures time per operation, so a larger value is worse. A result worse than its baseline by more
+ * than {@code -Dbaseline.tolerance} (0.20 by default) fails the run with exit code 1. Without any baseline the gate
+ * cannot work, so the run fails with exit code 2 until the baselines are recorded.
+ * <p>
+ * Properties: {@code baseline.file} (by default baselines/baseline.properties of the module, found from the location
+ * of benchmarks.jar whatever the working directory), {@code baseline.record} (write the results as the new
+ * baselines instead of comparing), {@code baseline.tolerance}.
+ */
+public final class BenchmarkRunner {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    // Allocation of a few bytes per operation (an escaped box, a lambda) is noise, not a regression
+    private static final double ALLOCATION_SLACK = 16;
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Path baselineFile = baselineFile();
+        boolean record = Boolean.getBoolean("baseline.record");
+        double tolerance = Double.parseDouble(System.getProperty("baseline.tolerance", "0.20"));
+
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : ".*")
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+        Properties results = toProperties(new Runner(options).run());
+
+        if (record) {
+            Properties baseline = load(baselineFile);
+            baseline.putAll(results);
+            Files.createDirectories(baselineFile.toAbsolutePath().getParent());
+            try (Writer writer = Files.newBufferedWriter(baselineFile, StandardCharsets.UTF_8)) {
+                baseline.store(writer, "JMH baselines: <benchmark>[<params>].time and .alloc (bytes/op)");
+            }
+            System.out.println("Recorded " + results.size() + " baselines in " + baselineFile);
+            return;
+        }
+
+        Properties baseline = load(baselineFile);
+        if (baseline.isEmpty()) {
+            System.err.println();
+            System.err.println("==================== NO PERFORMANCE BASELINE ====================");
+            System.err.println("No baseline in " + baselineFile + ": the regression gate is inactive.");
+            System.err.println("Record them on the reference machine with -Dbaseline.record=true");
+            System.err.println("=================================================================");
+            System.exit(2);
+        }
+        List<String> regressions = compare(results, baseline, tolerance);
+        if (!regressions.isEmpty()) {
+            System.err.println();
+            System.err.println("==================== PERFORMANCE REGRESSION ====================");
+            regressions.forEach(System.err::println);
+            System.err.println("================================================================");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return one line per result worse than its baseline
+     */
+    static List<String> compare(Properties results, Properties baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (String key : results.stringPropertyNames()) {
+            double value = Double.parseDouble(results.getProperty(key));
+            String expected = baseline.getProperty(key);
+            if (expected == null) {
+                System.err.println("WARNING: no baseline for " + key + " = " + value + ", not checked");
+                continue;
+            }
+            double limit = Double.parseDouble(expected) * (1 + tolerance);
+            if (key.endsWith(".alloc")) {
+                limit += ALLOCATION_SLACK;
+            }
+            if (value > limit) {
+                regressions.add(String.format("%s: %.3f, baseline %s (limit %.3f)", key, value, expected, limit));
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * @return the baseline.file property, or baselines/baseline.properties of the module: benchmarks.jar is in
+     * target, next to baselines
+     */
+    static Path baselineFile() {
+        String file = System.getProperty("baseline.file");
+        if (file != null) {
+            return Paths.get(file);
+        }
+        try {
+            Path location = Paths.get(BenchmarkRunner.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            // target/benchmarks.jar, or target/classes when run from the IDE
+            return location.toAbsolutePath().getParent().getParent().resolve("baselines").resolve("baseline.properties");
+        } catch (URISyntaxException | RuntimeException e) {
+            throw new IllegalStateException("Cannot locate the benchmarks module, set -Dbaseline.file", e);
+        }
+    }
+
+    private static Properties toProperties(Collection<RunResult> runResults) {
+        Properties properties = new Properties();
+        for (RunResult runResult : runResults) {
+            String key = key(runResult.getParams());
+            properties.setProperty(key + ".time", Double.toString(runResult.getPrimaryResult().getScore()));
+            for (Map.Entry<String, Result> secondary : runResult.getSecondaryResults().entrySet()) {
+                // Older JMH versions prefix the profiler results with a middle dot
+                if (secondary.getKey().endsWith(ALLOCATION)) {
+                    properties.setProperty(key + ".alloc", Double.toString(secondary.getValue().getScore()));
+                }
+            }
+        }
+        return properties;
+    }
+
+    private static String key(BenchmarkParams params) {
+        String benchmark = params.getBenchmark();
+        StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+        Collection<String> paramKeys = params.getParamsKeys();
+        if (!paramKeys.isEmpty()) {
+            key.append('[');
+            String separator = "";
+            for (String param : paramKeys) {
+                key.append(separator).append(param).append('=').append(params.getParam(param));
+                separator = ",";
+            }
+            key.append(']');
+        }
+        return key.toString();
+    }
+
+    private static Properties load(Path file) throws IOException {
+        Properties properties = new Properties();
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import adduct.AdductDescriptor;
+import adduct.AdductRegistry;
+import lipid.Annotation;
+import lipid.IonizationMode;
+import lipid.Lipid;
+import lipid.PeakList;
+import lipid.WorkloadGenerator;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Seeded datasets of the benchmarks, the same for every run
+ */
+final class Datasets {
+
+    private Datasets() {
+    }
+
+    /**
+     * Annotations of one sample of {@link WorkloadGenerator}, with RT noise and inversions so there are concordant
+     * and discordant pairs
+     */
+    static List<Annotation> sample(int size, long seed) {
+        return new WorkloadGenerator(seed, IonizationMode.POSITIVE, 0.3, 0.05).stream(size)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Annotations whose grouped signals are the annotation, one other adduct of the same mass and random signals
+     */
+    static Annotation[] adductGroups(int count, int signals, long seed) {
+        Random random = new Random(seed);
+        List<AdductDescriptor> adducts = AdductRegistry.forMode(IonizationMode.POSITIVE);
+        Annotation[] annotations = new Annotation[count];
+        for (int a = 0; a < count; a++) {
+            double mass = 500 + random.nextDouble() * 500;
+            double mz = adducts.get(random.nextInt(adducts.size())).toMz(mass);
+            double[] peakMz = new double[signals];
+            double[] intensity = new double[signals];
+            peakMz[0] = mz;
+            for (int p = 1; p < signals; p++) {
+                peakMz[p] = p == 1
+                        ? adducts.get(random.nextInt(adducts.size())).toMz(mass)
+                        : 300 + random.nextDouble() * 1500;
+                intensity[p] = random.nextDouble() * 1e5;
+            }
+            Lipid lipid = new Lipid(a, "PC 34:1", "C42H82NO8P", "PC", 34, 1);
+            annotations[a] = new Annotation(lipid, mz, 1e5, 6.5, IonizationMode.POSITIVE, PeakList.of(peakMz, intensity));
+        }
+        return annotations;
+    }
+}
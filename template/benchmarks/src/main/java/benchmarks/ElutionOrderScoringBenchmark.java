@@ -0,0 +1,53 @@
+package benchmarks;
+
+import lipid.Annotation;
+import lipid.ElutionOrderScoring;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring one sample from scratch with each {@link ElutionOrderScoring}, session creation and insertion included
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ElutionOrderScoringBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int annotations;
+
+    @Param({"rules", "native", "ecn"})
+    public String scoring;
+
+    private List<Annotation> sample;
+    private ElutionOrderScoring elutionOrderScoring;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        // Fresh annotations every iteration, the scores accumulate
+        sample = Datasets.sample(annotations, 25);
+        elutionOrderScoring = ElutionOrderScoring.forName(scoring);
+    }
+
+    @Benchmark
+    public List<Annotation> score() {
+        elutionOrderScoring.score(sample);
+        return sample;
+    }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import lipid.LipidScoreSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Firing the rules of the {@link lipid.LipidScoreUnit} over one sample, with the facts inserted before
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LipidScoreUnitBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int annotations;
+
+    private LipidScoreSession session;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        // Fresh annotations and session every iteration, a fired session has nothing left to fire
+        session = new LipidScoreSession();
+        session.addAll(Datasets.sample(annotations, 25));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        session.close();
+    }
+
+    @Benchmark
+    public int fire() {
+        return session.fire();
+    }
+}
@@ -31,19 +31,11 @@ public class Adduct {
     // Create the necessary regex to obtain the multimer (number before the M) and the charge (number before the + or - (if no number, the charge is 1).
 
     public static Double getMonoisotopicMassFromMZ(Double mz, String adduct) {
-
-
-        Double mzoffset = AdductList.MAPMZPOSITIVEADDUCTS.get(adduct);
-        if(mzoffset == null) {
-            mzoffset = AdductList.MAPMZNEGATIVEADDUCTS.get(adduct);
-        }
-        if(mzoffset == null) {
+        AdductDescriptor descriptor = AdductRegistry.get(adduct);
+        if(descriptor == null) {
             throw new IllegalArgumentException("No Adduct Found for " + adduct);
         }
-
-        int multimer = extractMultimer(adduct); // regex "(\\d+)M"
-        int charge = extractCharge(adduct);     // regex "(\\d+)([+-]$)"
-         return (mz + mzoffset) * charge / multimer;
+        return descriptor.toMonoisotopicMass(mz);
     }
 
 
@@ -58,33 +50,11 @@ public class Adduct {
      */
 
     public static Double getMZFromMonoisotopicMass(Double monoisotopicMass, String adduct) {
-        Double mz;
-
-        int multimer = extractMultimer(adduct);
-        int charge = extractCharge(adduct);
-
-        Double adductMass = AdductList.MAPMZPOSITIVEADDUCTS.get(adduct);
-        if (adductMass == null) {
-            adductMass = AdductList.MAPMZNEGATIVEADDUCTS.get(adduct);
-        }
-
-        if (adductMass == null) {
-            adductMass = 0.0;
-        }
-        if (charge == 1) {
-            //if Adduct is single charge the formula is M = m/z +- adductMass. Charge is 1 so it does not affect
-            // therefore mz = M + adductMass
-            mz = monoisotopicMass - adductMass;
-        } else if (multimer > 1) {
-            //if adduct is a dimer or multimer the formula is M =  (mz +- adductMass) / numberOfMultimer
-            //therefore mz = (M * numberOfMultimer) + adductMass
-            mz = (monoisotopicMass*multimer) - adductMass ;
-        } else {
-            //if Adduct is double or triple charged the formula is M = ( mz +- adductMass ) * charge
-            //therefore mz = (M / charge) + adductMass
-            mz = (monoisotopicMass/charge) - adductMass;
+        AdductDescriptor descriptor = AdductRegistry.get(adduct);
+        if (descriptor == null) {
+            throw new IllegalArgumentException("No Adduct Found for " + adduct);
         }
-        return mz;
+        return descriptor.toMz(monoisotopicMass);
     }
 
 
@@ -118,9 +88,11 @@ public class Adduct {
     }
 
     // metodos extra que hacen falta:
+    private static final Pattern MULTIMER_PATTERN = Pattern.compile("(\\d+)M");
+    private static final Pattern CHARGE_PATTERN = Pattern.compile("(\\d+)([+-]$)");
+
     public static int extractMultimer(String adduct) {
-        Pattern pMultimer = Pattern.compile("(\\d+)M");
-        Matcher mMultimer = pMultimer.matcher(adduct);
+        Matcher mMultimer = MULTIMER_PATTERN.matcher(adduct);
         if (mMultimer.find()) {
             return Integer.parseInt(mMultimer.group(1));
         }else {
@@ -128,8 +100,7 @@ public class Adduct {
         }
     }
     public static int extractCharge(String adduct) {
-        Pattern pCharge = Pattern.compile("(\\d+)([+-]$)");
-        Matcher mCharge = pCharge.matcher(adduct);
+        Matcher mCharge = CHARGE_PATTERN.matcher(adduct);
         if (mCharge.find()) {
             return Integer.parseInt(mCharge.group(1));
         } else {
@@ -0,0 +1,114 @@
+package adduct;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Conversions between mz and monoisotopic mass over whole arrays (or slices of them) of a spectrum.
+ * <p>
+ * The loops are plain counted loops over primitive arrays that call the conversions of {@link AdductDescriptor}, a
+ * final class whose methods the JIT inlines, so the loop body keeps the shape the JIT auto-vectorizes and a batch
+ * result is bit identical to converting the values one by one.
+ */
+public final class AdductBatch {
+
+    private AdductBatch() {
+    }
+
+    /**
+     * Fills masses[offset .. offset + (to - from)) with the monoisotopic masses of mz[from .. to) assuming the adduct.
+     *
+     * @param mz experimental mz values
+     * @param from first index of the slice (inclusive)
+     * @param to last index of the slice (exclusive)
+     * @param adduct adduct hypothesis
+     * @param masses output array
+     * @param offset first index written in masses
+     */
+    public static void monoisotopicMassesFromMz(double[] mz, int from, int to, AdductDescriptor adduct,
+                                                double[] masses, int offset) {
+        Objects.checkFromToIndex(from, to, mz.length);
+        int length = to - from;
+        Objects.checkFromIndexSize(offset, length, masses.length);
+
+        for (int i = 0; i < length; i++) {
+            masses[offset + i] = adduct.toMonoisotopicMass(mz[from + i]);
+        }
+    }
+
+    /**
+     * Converts mz[from .. to) under several adduct hypotheses. Row a of masses receives the masses of adducts.get(a),
+     * starting at index 0.
+     */
+    public static void monoisotopicMassesFromMz(double[] mz, int from, int to, List<AdductDescriptor> adducts,
+                                                double[][] masses) {
+        if (masses.length < adducts.size()) {
+            throw new IllegalArgumentException("Expected " + adducts.size() + " output rows, got " + masses.length);
+        }
+        for (int a = 0; a < adducts.size(); a++) {
+            monoisotopicMassesFromMz(mz, from, to, adducts.get(a), masses[a], 0);
+        }
+    }
+
+    /**
+     * Fills mz[offset .. offset + (to - from)) with {@link AdductDescriptor#toMz(double)} of masses[from .. to).
+     *
+     * @param masses monoisotopic masses
+     * @param from first index of the slice (inclusive)
+     * @param to last index of the slice (exclusive)
+     * @param adduct adduct
+     * @param mz output array
+     * @param offset first index written in mz
+     */
+    public static void mzFromMonoisotopicMasses(double[] masses, int from, int to, AdductDescriptor adduct,
+                                                double[] mz, int offset) {
+        Objects.checkFromToIndex(from, to, masses.length);
+        int length = to - from;
+        Objects.checkFromIndexSize(offset, length, mz.length);
+
+        for (int i = 0; i < length; i++) {
+            mz[offset + i] = adduct.toMz(masses[from + i]);
+        }
+    }
+
+    /**
+     * Fills ppm[offset .. offset + (to - from)) with the absolute ppm error of experimental[from .. to) against one
+     * theoretical mass. Unlike {@link Adduct#calculatePPMIncrement(Double, Double)} the result is not rounded.
+     *
+     * @param experimental masses measured by MS (or computed from them)
+     * @param from first index of the slice (inclusive)
+     * @param to last index of the slice (exclusive)
+     * @param theoreticalMass theoretical mass of the compound
+     * @param ppm output array
+     * @param offset first index written in ppm
+     */
+    public static void ppmErrors(double[] experimental, int from, int to, double theoreticalMass,
+                                 double[] ppm, int offset) {
+        Objects.checkFromToIndex(from, to, experimental.length);
+        int length = to - from;
+        Objects.checkFromIndexSize(offset, length, ppm.length);
+
+        double factor = 1000000 / theoreticalMass;
+        for (int i = 0; i < length; i++) {
+            ppm[offset + i] = Math.abs(experimental[from + i] - theoreticalMass) * factor;
+        }
+    }
+
+    /**
+     * Element wise version of {@link #ppmErrors(double[], int, int, double, double[], int)}: experimental[from + i] is
+     * compared against theoretical[theoreticalOffset + i].
+     */
+    public static void ppmErrors(double[] experimental, int from, int to, double[] theoretical, int theoreticalOffset,
+                                 double[] ppm, int offset) {
+        Objects.checkFromToIndex(from, to, experimental.length);
+        int length = to - from;
+        Objects.checkFromIndexSize(theoreticalOffset, length, theoretical.length);
+        Objects.checkFromIndexSize(offset, length, ppm.length);
+
+        for (int i = 0; i < length; i++) {
+            // Same expression as the single mass overload, so both give the same bits for the same inputs
+            ppm[offset + i] = Math.abs(experimental[from + i] - theoretical[theoreticalOffset + i])
+                    * (1000000 / theoretical[theoreticalOffset + i]);
+        }
+    }
+}
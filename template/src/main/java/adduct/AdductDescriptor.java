@@ -0,0 +1,96 @@
+package adduct;
+
+import lipid.IonizationMode;
+
+/**
+ * Parsed, immutable view of one adduct of {@link AdductList}. The offset, charge and multimer are resolved once so the
+ * conversions work on primitive doubles without regexes, map lookups or boxing.
+ */
+public final class AdductDescriptor {
+
+    private final int id;
+    private final String name;
+    private final double mzOffset;
+    private final int charge;
+    private final int multimer;
+    private final IonizationMode ionizationMode;
+
+    AdductDescriptor(int id, String name, double mzOffset, int charge, int multimer, IonizationMode ionizationMode) {
+        this.id = id;
+        this.name = name;
+        this.mzOffset = mzOffset;
+        this.charge = charge;
+        this.multimer = multimer;
+        this.ionizationMode = ionizationMode;
+    }
+
+    /**
+     * @return the position of this adduct in {@link AdductRegistry}
+     */
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getMzOffset() {
+        return mzOffset;
+    }
+
+    public int getCharge() {
+        return charge;
+    }
+
+    public int getMultimer() {
+        return multimer;
+    }
+
+    public IonizationMode getIonizationMode() {
+        return ionizationMode;
+    }
+
+    /**
+     * Same formula as {@link Adduct#getMonoisotopicMassFromMZ(Double, String)}: M = (mz + offset) * charge / multimer
+     *
+     * @param mz experimental mz
+     * @return the monoisotopic mass of the experimental mz assuming this adduct
+     */
+    public double toMonoisotopicMass(double mz) {
+        return (mz + mzOffset) * charge / multimer;
+    }
+
+    /**
+     * Expected mz of the adduct detection, baseline compatible with {@link Adduct#getMZFromMonoisotopicMass(Double,
+     * String)}: a single charged adduct ignores its multimer, so [2M+H]+ is expected at the mz of [M+H]+, and a
+     * multimer ignores its charge. For every other adduct it is {@link #toIonMz(double)}. It is kept so the detected
+     * adducts do not change; {@link AdductRegistry} and {@link AdductBatch} delegate to it.
+     *
+     * @param monoisotopicMass neutral mass
+     * @return the mz of the monoisotopic mass with this adduct
+     */
+    public double toMz(double monoisotopicMass) {
+        if (charge == 1) {
+            return monoisotopicMass - mzOffset;
+        } else if (multimer > 1) {
+            return (monoisotopicMass * multimer) - mzOffset;
+        }
+        return (monoisotopicMass / charge) - mzOffset;
+    }
+
+    /**
+     * Real mz of the ion, the exact inverse of {@link #toMonoisotopicMass(double)}: mz = M * multimer / charge - offset
+     *
+     * @param monoisotopicMass neutral mass
+     * @return the mz of the ion of the monoisotopic mass with this adduct
+     */
+    public double toIonMz(double monoisotopicMass) {
+        return monoisotopicMass * multimer / charge - mzOffset;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
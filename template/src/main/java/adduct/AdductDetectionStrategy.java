@@ -0,0 +1,35 @@
+package adduct;
+
+import lipid.IonizationMode;
+
+/**
+ * Algorithm to detect the adduct of an annotation from the mz of the signals grouped with it.
+ */
+public interface AdductDetectionStrategy {
+
+    /**
+     * Returned when there are less than two grouped signals
+     */
+    String NOT_ENOUGH_SIGNALS = "Unknown";
+
+    /**
+     * Returned when no adduct explains the grouped signals. The spelling is kept from the first implementation
+     * because callers already compare against it.
+     */
+    String NOT_DETECTED = "Unkown";
+
+    /**
+     * Detects the adduct of the annotation. The result is the first adduct, in the order of {@link AdductList}, for
+     * which another grouped signal (not within the tolerance of the annotation mz) is explained by any adduct of the
+     * same ionization mode.
+     *
+     * @param mz             mz of the annotation
+     * @param peakMz         mz of the grouped signals sorted in ascending order
+     * @param from           first index of the signals in peakMz (inclusive)
+     * @param to             last index of the signals in peakMz (exclusive)
+     * @param ionizationMode ionization mode of the annotation
+     * @param mzTolerance    absolute mz tolerance
+     * @return the adduct name, {@link #NOT_ENOUGH_SIGNALS} or {@link #NOT_DETECTED}
+     */
+    String detect(double mz, double[] peakMz, int from, int to, IonizationMode ionizationMode, double mzTolerance);
+}
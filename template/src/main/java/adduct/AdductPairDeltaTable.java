@@ -0,0 +1,122 @@
+package adduct;
+
+import lipid.IonizationMode;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sorted mz differences between the adducts of one ionization mode. When the adduct of the annotation is a singly
+ * charged monomer and the adduct of the other signal is singly charged, the mz of the other signal is
+ * mz + (offset of the annotation adduct - offset of the signal adduct), independently of the neutral mass, so those
+ * pairs are resolved from the difference between two signals alone.
+ */
+public final class AdductPairDeltaTable {
+
+    private static final Map<IonizationMode, AdductPairDeltaTable> TABLES = new EnumMap<>(IonizationMode.class);
+
+    static {
+        for (IonizationMode ionizationMode : IonizationMode.values()) {
+            TABLES.put(ionizationMode, new AdductPairDeltaTable(AdductRegistry.forMode(ionizationMode)));
+        }
+    }
+
+    private final List<AdductDescriptor> adducts;
+    private final boolean[] linearAnnotation; // the annotation adduct has charge 1 and multimer 1
+    private final boolean[] linearSignal;     // the signal adduct has charge 1
+    private final double[] deltas;            // sorted mz differences signal - annotation
+    private final int[] annotationAdducts;    // index in adducts of the annotation adduct of each delta
+
+    private AdductPairDeltaTable(List<AdductDescriptor> adducts) {
+        this.adducts = adducts;
+        int size = adducts.size();
+        this.linearAnnotation = new boolean[size];
+        this.linearSignal = new boolean[size];
+        int linearAnnotations = 0;
+        int linearSignals = 0;
+        for (int a = 0; a < size; a++) {
+            AdductDescriptor adduct = adducts.get(a);
+            linearAnnotation[a] = adduct.getCharge() == 1 && adduct.getMultimer() == 1;
+            linearSignal[a] = adduct.getCharge() == 1;
+            linearAnnotations += linearAnnotation[a] ? 1 : 0;
+            linearSignals += linearSignal[a] ? 1 : 0;
+        }
+
+        // Pairs sorted by delta, built once per ionization mode
+        int pairs = linearAnnotations * linearSignals;
+        double[] unsortedDeltas = new double[pairs];
+        int[] unsortedAdducts = new int[pairs];
+        int p = 0;
+        for (int a = 0; a < size; a++) {
+            if (!linearAnnotation[a]) {
+                continue;
+            }
+            for (int b = 0; b < size; b++) {
+                if (linearSignal[b]) {
+                    unsortedDeltas[p] = adducts.get(a).getMzOffset() - adducts.get(b).getMzOffset();
+                    unsortedAdducts[p] = a;
+                    p++;
+                }
+            }
+        }
+        Integer[] order = new Integer[pairs];
+        for (int i = 0; i < pairs; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i, j) -> Double.compare(unsortedDeltas[i], unsortedDeltas[j]));
+        this.deltas = new double[pairs];
+        this.annotationAdducts = new int[pairs];
+        for (int i = 0; i < pairs; i++) {
+            deltas[i] = unsortedDeltas[order[i]];
+            annotationAdducts[i] = unsortedAdducts[order[i]];
+        }
+    }
+
+    /**
+     * @param ionizationMode ionization mode
+     * @return the table of the adducts of that mode
+     */
+    public static AdductPairDeltaTable forMode(IonizationMode ionizationMode) {
+        return TABLES.get(ionizationMode);
+    }
+
+    /**
+     * @return the adducts of the table, in the order of {@link AdductList}
+     */
+    public List<AdductDescriptor> getAdducts() {
+        return adducts;
+    }
+
+    public boolean isLinearAnnotation(int adduct) {
+        return linearAnnotation[adduct];
+    }
+
+    public boolean isLinearSignal(int adduct) {
+        return linearSignal[adduct];
+    }
+
+    /**
+     * Marks in explained every annotation adduct with a delta within the tolerance of the observed difference.
+     *
+     * @param difference  mz of the signal - mz of the annotation
+     * @param mzTolerance absolute mz tolerance
+     * @param explained   flags indexed like {@link #getAdducts()}
+     */
+    public void explain(double difference, double mzTolerance, boolean[] explained) {
+        int low = 0;
+        int high = deltas.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (deltas[middle] < difference - mzTolerance) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        for (int i = low; i < deltas.length && deltas[i] <= difference + mzTolerance; i++) {
+            explained[annotationAdducts[i]] = true;
+        }
+    }
+}
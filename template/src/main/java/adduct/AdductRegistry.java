@@ -0,0 +1,101 @@
+package adduct;
+
+import lipid.IonizationMode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the adducts in {@link AdductList} parsed once at class loading. Ids are dense, positive adducts first
+ * and then negative ones, both in the insertion order of {@link AdductList}, so iterating an ionization mode gives the
+ * same order as iterating the corresponding map.
+ */
+public final class AdductRegistry {
+
+    private static final AdductDescriptor[] DESCRIPTORS;
+    private static final Map<String, AdductDescriptor> BY_NAME;
+    private static final List<AdductDescriptor> POSITIVE;
+    private static final List<AdductDescriptor> NEGATIVE;
+
+    static {
+        List<AdductDescriptor> positive = register(AdductList.MAPMZPOSITIVEADDUCTS, IonizationMode.POSITIVE, 0);
+        List<AdductDescriptor> negative = register(AdductList.MAPMZNEGATIVEADDUCTS, IonizationMode.NEGATIVE, positive.size());
+        POSITIVE = Collections.unmodifiableList(positive);
+        NEGATIVE = Collections.unmodifiableList(negative);
+
+        DESCRIPTORS = new AdductDescriptor[positive.size() + negative.size()];
+        Map<String, AdductDescriptor> byName = new HashMap<>();
+        for (AdductDescriptor descriptor : positive) {
+            DESCRIPTORS[descriptor.getId()] = descriptor;
+            byName.put(descriptor.getName(), descriptor);
+        }
+        for (AdductDescriptor descriptor : negative) {
+            DESCRIPTORS[descriptor.getId()] = descriptor;
+            // Positive adducts win in case of a name clash, as in the old lookups
+            byName.putIfAbsent(descriptor.getName(), descriptor);
+        }
+        BY_NAME = Collections.unmodifiableMap(byName);
+    }
+
+    private AdductRegistry() {
+    }
+
+    private static List<AdductDescriptor> register(Map<String, Double> adducts, IonizationMode ionizationMode, int firstId) {
+        List<AdductDescriptor> descriptors = new ArrayList<>(adducts.size());
+        int id = firstId;
+        for (Map.Entry<String, Double> entry : adducts.entrySet()) {
+            String name = entry.getKey();
+            descriptors.add(new AdductDescriptor(id++, name, entry.getValue(),
+                    Adduct.extractCharge(name), Adduct.extractMultimer(name), ionizationMode));
+        }
+        return descriptors;
+    }
+
+    /**
+     * @param adduct adduct name ([M+H]+, [2M+H]+, [M+2H]2+, etc..)
+     * @return the descriptor of the adduct or null if it is not in {@link AdductList}
+     */
+    public static AdductDescriptor get(String adduct) {
+        return BY_NAME.get(adduct);
+    }
+
+    /**
+     * @param id id of the adduct
+     * @return the descriptor with that id
+     */
+    public static AdductDescriptor get(int id) {
+        return DESCRIPTORS[id];
+    }
+
+    /**
+     * @param ionizationMode ionization mode
+     * @return the adducts of that mode in the order of {@link AdductList}
+     */
+    public static List<AdductDescriptor> forMode(IonizationMode ionizationMode) {
+        return ionizationMode == IonizationMode.POSITIVE ? POSITIVE : NEGATIVE;
+    }
+
+    /**
+     * @return number of adducts registered
+     */
+    public static int size() {
+        return DESCRIPTORS.length;
+    }
+
+    /**
+     * Id based equivalent of {@link AdductDescriptor#toMonoisotopicMass(double)}
+     */
+    public static double toMonoisotopicMass(int adductId, double mz) {
+        return DESCRIPTORS[adductId].toMonoisotopicMass(mz);
+    }
+
+    /**
+     * Id based equivalent of {@link AdductDescriptor#toMz(double)}
+     */
+    public static double toMz(int adductId, double monoisotopicMass) {
+        return DESCRIPTORS[adductId].toMz(monoisotopicMass);
+    }
+}
@@ -0,0 +1,59 @@
+package adduct;
+
+import lipid.IonizationMode;
+
+import java.util.List;
+
+/**
+ * Adduct detection through the precomputed mz differences of {@link AdductPairDeltaTable}. Each grouped signal is
+ * explained by one lookup of its difference with the annotation mz. Pairs that involve multimers or multiply charged
+ * adducts depend on the neutral mass and fall back to the binary searches of {@link SortedPeakAdductDetection}.
+ * <p>
+ * The detected adduct is the same as with the other strategies except for signals exactly at the tolerance
+ * boundary, where the difference is rounded in a different order.
+ */
+public class MassDifferenceAdductDetection implements AdductDetectionStrategy {
+
+    @Override
+    public String detect(double mz, double[] peakMz, int from, int to, IonizationMode ionizationMode, double mzTolerance) {
+        if (to - from < 2) {
+            return NOT_ENOUGH_SIGNALS;
+        }
+        if (ionizationMode == null) {
+            return NOT_DETECTED;
+        }
+
+        AdductPairDeltaTable table = AdductPairDeltaTable.forMode(ionizationMode);
+        List<AdductDescriptor> adducts = table.getAdducts();
+
+        int excludedFrom = SortedPeakAdductDetection.lowerBound(peakMz, from, to, mz, -mzTolerance);
+        int excludedTo = SortedPeakAdductDetection.upperBound(peakMz, excludedFrom, to, mz, mzTolerance);
+
+        boolean[] explained = new boolean[adducts.size()];
+        // Signals within the tolerance of the annotation mz are skipped, as in the other strategies
+        for (int i = from; i < excludedFrom; i++) {
+            table.explain(peakMz[i] - mz, mzTolerance, explained);
+        }
+        for (int i = Math.max(excludedFrom, excludedTo); i < to; i++) {
+            table.explain(peakMz[i] - mz, mzTolerance, explained);
+        }
+
+        for (int a = 0; a < adducts.size(); a++) {
+            if (explained[a]) {
+                return adducts.get(a).getName();
+            }
+            // General case for the pairs left out of the table
+            double monoisotopicMass = adducts.get(a).toMonoisotopicMass(mz);
+            for (int b = 0; b < adducts.size(); b++) {
+                if (table.isLinearAnnotation(a) && table.isLinearSignal(b)) {
+                    continue;
+                }
+                double expectedMz = adducts.get(b).toMz(monoisotopicMass);
+                if (SortedPeakAdductDetection.hasSignal(peakMz, from, to, expectedMz, mzTolerance, excludedFrom, excludedTo)) {
+                    return adducts.get(a).getName();
+                }
+            }
+        }
+        return NOT_DETECTED;
+    }
+}
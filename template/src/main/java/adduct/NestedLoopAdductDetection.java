@@ -0,0 +1,80 @@
+package adduct;
+
+import lipid.DiagnosticTrace;
+import lipid.IonizationMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * First adduct detection algorithm: every adduct of the annotation against every grouped signal and every adduct of
+ * that signal. It is kept as the reference for the faster strategies.
+ */
+//ALGORITHM DONE BY GONZALO FERNANDEZ AND FERNANDO DE MEDINA
+public class NestedLoopAdductDetection implements AdductDetectionStrategy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NestedLoopAdductDetection.class);
+
+    @Override
+    public String detect(double mz, double[] peakMz, int from, int to, IonizationMode ionizationMode, double mzTolerance) {
+        boolean trace = DiagnosticTrace.isTracing(LOG, mz);
+        if (to - from < 2) {
+            if (trace) {
+                LOG.trace("detectAdduct: Not enough signals ({})", to - from);
+            }
+            return NOT_ENOUGH_SIGNALS;
+        }
+
+        Map<String, Double> adducts;
+        if (ionizationMode == IonizationMode.POSITIVE) {
+            adducts = AdductList.MAPMZPOSITIVEADDUCTS;
+        } else if (ionizationMode == IonizationMode.NEGATIVE) {
+            adducts = AdductList.MAPMZNEGATIVEADDUCTS;
+        } else {
+            return NOT_DETECTED;
+        }
+
+        // Recorremos todos los posibles aductos para la anotación principal
+        for (Map.Entry<String, Double> entry : adducts.entrySet()) {
+
+            String adductAnnotation = entry.getKey();
+            double monoisotopicMassAdduct = Adduct.getMonoisotopicMassFromMZ(mz, adductAnnotation);
+
+            if (trace) {
+                LOG.trace("--- Probando aducto para la anotación: {} ---", adductAnnotation);
+                LOG.trace("Masa monoisotópica estimada de la anotación con {}: {}", adductAnnotation, monoisotopicMassAdduct);
+            }
+
+            // Recorremos cada uno de los picos agrupados dentro de la anotación
+            for (int i = from; i < to; i++) {
+                double mzPeak = peakMz[i];
+                if (trace) {
+                    LOG.trace("   Analizando peak con m/z = {}", mzPeak);
+                }
+
+                if (Math.abs(mzPeak - mz) <= mzTolerance) {
+                    //It's the same peak as the objective, so I skip it.
+                    continue;
+                }
+
+                // Probamos todos los posibles aductos para ese peak
+                for (Map.Entry<String, Double> entry2 : adducts.entrySet()) {
+                    String adductPeak = entry2.getKey();
+                    double mzForThatPeak = Adduct.getMZFromMonoisotopicMass(monoisotopicMassAdduct, adductPeak);
+                    double diff = Math.abs(mzForThatPeak - mzPeak);
+                    if (trace) {
+                        LOG.trace("secondAdduct={}, expectedMz={}, observed={}, diff={}", adductPeak, mzForThatPeak, mzPeak, diff);
+                    }
+                    if (diff <= mzTolerance) {
+                        if (trace) {
+                            LOG.trace("DETECTED adduct: {} (via {})", adductAnnotation, adductPeak);
+                        }
+                        return adductAnnotation;
+                    }
+                }
+            }
+        }
+        return NOT_DETECTED;
+    }
+}
@@ -0,0 +1,97 @@
+package adduct;
+
+import lipid.DiagnosticTrace;
+import lipid.IonizationMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Adduct detection over the sorted mz of the grouped signals. For every pair of adducts the expected mz is computed
+ * once and the signals around it are found by binary search, so a detection costs O(A² · log P) instead of
+ * O(A² · P).
+ * <p>
+ * The bounds of the searches use the same floating point expressions as the nested loop comparisons, so the detected
+ * adduct is exactly the one of {@link NestedLoopAdductDetection}.
+ */
+public class SortedPeakAdductDetection implements AdductDetectionStrategy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SortedPeakAdductDetection.class);
+
+    @Override
+    public String detect(double mz, double[] peakMz, int from, int to, IonizationMode ionizationMode, double mzTolerance) {
+        if (to - from < 2) {
+            return NOT_ENOUGH_SIGNALS;
+        }
+        if (ionizationMode == null) {
+            return NOT_DETECTED;
+        }
+
+        // Signals within the tolerance of the annotation are the annotation itself and never explain an adduct
+        int excludedFrom = lowerBound(peakMz, from, to, mz, -mzTolerance);
+        int excludedTo = upperBound(peakMz, excludedFrom, to, mz, mzTolerance);
+
+        List<AdductDescriptor> adducts = AdductRegistry.forMode(ionizationMode);
+        for (AdductDescriptor adductAnnotation : adducts) {
+            double monoisotopicMass = adductAnnotation.toMonoisotopicMass(mz);
+            for (AdductDescriptor adductPeak : adducts) {
+                double expectedMz = adductPeak.toMz(monoisotopicMass);
+                if (hasSignal(peakMz, from, to, expectedMz, mzTolerance, excludedFrom, excludedTo)) {
+                    if (DiagnosticTrace.isTracing(LOG, mz)) {
+                        LOG.trace("mz={}: DETECTED adduct {} (via {}, expectedMz={})", mz, adductAnnotation, adductPeak, expectedMz);
+                    }
+                    return adductAnnotation.getName();
+                }
+            }
+        }
+        return NOT_DETECTED;
+    }
+
+    /**
+     * @return true if a signal outside [excludedFrom, excludedTo) is within the tolerance of expectedMz
+     */
+    static boolean hasSignal(double[] peakMz, int from, int to, double expectedMz, double mzTolerance,
+                             int excludedFrom, int excludedTo) {
+        int matchFrom = lowerBound(peakMz, from, to, expectedMz, -mzTolerance);
+        int matchTo = upperBound(peakMz, matchFrom, to, expectedMz, mzTolerance);
+        if (matchFrom >= matchTo) {
+            return false;
+        }
+        return matchFrom < excludedFrom || matchTo > excludedTo || excludedFrom >= excludedTo;
+    }
+
+    /**
+     * @return the first index i in [from, to) with peakMz[i] - center >= bound, or to if there is none
+     */
+    static int lowerBound(double[] peakMz, int from, int to, double center, double bound) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (peakMz[middle] - center >= bound) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the first index i in [from, to) with peakMz[i] - center > bound, or to if there is none
+     */
+    static int upperBound(double[] peakMz, int from, int to, double center, double bound) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (peakMz[middle] - center > bound) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,150 @@
+package io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes the base64, optionally zlib compressed, binary arrays of mzML and mzXML into doubles. All the buffers are
+ * reused between arrays, so decoding does not allocate once they have grown to the largest array of the file.
+ */
+final class BinaryArrayDecoder {
+
+    private static final int[] BASE64 = new int[128];
+
+    static {
+        Arrays.fill(BASE64, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private final Inflater inflater = new Inflater();
+    private byte[] encoded = new byte[1 << 14];
+    private int encodedLength;
+    private byte[] decoded = new byte[1 << 14];
+    private byte[] inflated = new byte[1 << 14];
+    private double[] values = new double[1 << 11];
+
+    void reset() {
+        encodedLength = 0;
+    }
+
+    /**
+     * Appends base64 text, skipping whitespace
+     */
+    void append(char[] text, int start, int length) {
+        if (encodedLength + length > encoded.length) {
+            encoded = Arrays.copyOf(encoded, Math.max(encodedLength + length, encoded.length * 2));
+        }
+        for (int i = start; i < start + length; i++) {
+            char c = text[i];
+            if (c > ' ') {
+                encoded[encodedLength++] = (byte) c;
+            }
+        }
+    }
+
+    /**
+     * Decodes the appended text
+     *
+     * @param zlib      true if the bytes are zlib compressed
+     * @param bits      32 or 64
+     * @param byteOrder byte order of the numbers
+     * @return number of values decoded, available in {@link #values()}
+     */
+    int decode(boolean zlib, int bits, ByteOrder byteOrder) throws IOException {
+        int length = decodeBase64();
+        if (length == 0) {
+            // An empty array (encodedLength="0") has no zlib stream at all
+            return 0;
+        }
+        byte[] bytes = decoded;
+        if (zlib) {
+            length = inflate(length);
+            bytes = inflated;
+        }
+
+        int size = bits == 64 ? length / Double.BYTES : length / Float.BYTES;
+        if (values.length < size) {
+            values = new double[Math.max(size, values.length * 2)];
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length).order(byteOrder);
+        if (bits == 64) {
+            for (int i = 0; i < size; i++) {
+                values[i] = buffer.getDouble(i * Double.BYTES);
+            }
+        } else if (bits == 32) {
+            for (int i = 0; i < size; i++) {
+                values[i] = buffer.getFloat(i * Float.BYTES);
+            }
+        } else {
+            throw new IOException("Unsupported precision of " + bits + " bits");
+        }
+        return size;
+    }
+
+    /**
+     * @return the values of the last array decoded
+     */
+    double[] values() {
+        return values;
+    }
+
+    private int decodeBase64() throws IOException {
+        int capacity = encodedLength / 4 * 3 + 3;
+        if (decoded.length < capacity) {
+            decoded = new byte[Math.max(capacity, decoded.length * 2)];
+        }
+        int length = 0;
+        int accumulator = 0;
+        int bits = 0;
+        for (int i = 0; i < encodedLength; i++) {
+            int c = encoded[i];
+            if (c == '=') {
+                break;
+            }
+            int value = c < 0 ? -1 : BASE64[c];
+            if (value < 0) {
+                throw new IOException("Invalid base64 character '" + (char) c + "'");
+            }
+            accumulator = (accumulator << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                decoded[length++] = (byte) (accumulator >> bits);
+                accumulator &= (1 << bits) - 1;
+            }
+        }
+        return length;
+    }
+
+    private int inflate(int length) throws IOException {
+        inflater.reset();
+        inflater.setInput(decoded, 0, length);
+        int total = 0;
+        try {
+            while (!inflater.finished()) {
+                if (total == inflated.length) {
+                    inflated = Arrays.copyOf(inflated, inflated.length * 2);
+                }
+                int count = inflater.inflate(inflated, total, inflated.length - total);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated zlib data");
+                }
+                total += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid zlib data: " + e.getMessage(), e);
+        }
+        return total;
+    }
+
+    void close() {
+        inflater.end();
+    }
+}
@@ -0,0 +1,142 @@
+package io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cursor over the rows of a {@link BinaryResultWriter} file. Blocks are read one at a time into reused arrays and a
+ * truncated last block (interrupted run) ends the rows.
+ */
+public class BinaryResultReader implements Closeable {
+
+    private final FileChannel channel;
+    private final List<String> dictionary = new ArrayList<>();
+    private final int[] lipid = new int[BinaryResultWriter.BLOCK_ROWS];
+    private final int[] adduct = new int[BinaryResultWriter.BLOCK_ROWS];
+    private final double[] mz = new double[BinaryResultWriter.BLOCK_ROWS];
+    private final double[] rt = new double[BinaryResultWriter.BLOCK_ROWS];
+    private final double[] intensity = new double[BinaryResultWriter.BLOCK_ROWS];
+    private final int[] score = new int[BinaryResultWriter.BLOCK_ROWS];
+    private final double[] normalizedScore = new double[BinaryResultWriter.BLOCK_ROWS];
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private int blockRows;
+    private int row = -1;
+
+    public BinaryResultReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (!read(2 * Integer.BYTES) || buffer.getInt() != BinaryResultWriter.MAGIC) {
+                throw new IOException(file + " is not a binary result file");
+            }
+            int version = buffer.getInt();
+            if (version != BinaryResultWriter.VERSION) {
+                throw new IOException("Unsupported result file version " + version);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Moves to the next row
+     *
+     * @return false after the last complete row
+     */
+    public boolean next() throws IOException {
+        if (++row < blockRows) {
+            return true;
+        }
+        if (!read(Integer.BYTES)) {
+            return false;
+        }
+        int bytes = buffer.getInt();
+        if (bytes < 2 * Integer.BYTES || !read(bytes)) {
+            blockRows = 0;
+            return false;
+        }
+        blockRows = buffer.getInt();
+        if (blockRows <= 0 || blockRows > BinaryResultWriter.BLOCK_ROWS) {
+            throw new IOException("Corrupted block of " + blockRows + " rows");
+        }
+        int newStrings = buffer.getInt();
+        for (int i = 0; i < newStrings; i++) {
+            byte[] string = new byte[buffer.getInt()];
+            buffer.get(string);
+            dictionary.add(new String(string, StandardCharsets.UTF_8));
+        }
+        for (int i = 0; i < blockRows; i++) lipid[i] = buffer.getInt();
+        for (int i = 0; i < blockRows; i++) adduct[i] = buffer.getInt();
+        for (int i = 0; i < blockRows; i++) mz[i] = buffer.getDouble();
+        for (int i = 0; i < blockRows; i++) rt[i] = buffer.getDouble();
+        for (int i = 0; i < blockRows; i++) intensity[i] = buffer.getDouble();
+        for (int i = 0; i < blockRows; i++) score[i] = buffer.getInt();
+        for (int i = 0; i < blockRows; i++) normalizedScore[i] = buffer.getDouble();
+        row = 0;
+        return true;
+    }
+
+    /**
+     * Reads exactly the given bytes into the buffer, ready to be consumed
+     *
+     * @return false if the file ends before
+     */
+    private boolean read(int bytes) throws IOException {
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear().limit(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private String string(int code) {
+        return code == BinaryResultWriter.NULL_STRING ? null : dictionary.get(code);
+    }
+
+    public String getLipidName() {
+        return string(lipid[row]);
+    }
+
+    public String getAdduct() {
+        return string(adduct[row]);
+    }
+
+    public double getMz() {
+        return mz[row];
+    }
+
+    public double getRtMin() {
+        return rt[row];
+    }
+
+    public double getIntensity() {
+        return intensity[row];
+    }
+
+    public int getScore() {
+        return score[row];
+    }
+
+    public double getNormalizedScore() {
+        return normalizedScore[row];
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,142 @@
+package io;
+
+import lipid.Annotation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary columnar {@link ResultWriter}, read back by {@link BinaryResultReader}. Rows are gathered in blocks of
+ * {@link #BLOCK_ROWS}; every block is written at once, column after column, into a reused little endian
+ * {@link ByteBuffer}:
+ * <pre>
+ * int blockBytes (after this int), int rows, int newStrings, newStrings x (int length, UTF-8 bytes),
+ * int[rows] lipid, int[rows] adduct, double[rows] mz, double[rows] rtMin, double[rows] intensity,
+ * int[rows] score, double[rows] normalizedScore
+ * </pre>
+ * Lipid names and adducts are dictionary codes (-1 for null); each string is defined in the first block using it.
+ * A truncated last block is ignored by the reader.
+ */
+public class BinaryResultWriter implements ResultWriter {
+
+    static final int MAGIC = 0x52534231; // RSB1
+    static final int VERSION = 1;
+    static final int BLOCK_ROWS = 4096;
+    static final int NULL_STRING = -1;
+
+    private final FileChannel channel;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<byte[]> newStrings = new ArrayList<>();
+    private final int[] lipid = new int[BLOCK_ROWS];
+    private final int[] adduct = new int[BLOCK_ROWS];
+    private final double[] mz = new double[BLOCK_ROWS];
+    private final double[] rt = new double[BLOCK_ROWS];
+    private final double[] intensity = new double[BLOCK_ROWS];
+    private final int[] score = new int[BLOCK_ROWS];
+    private final double[] normalizedScore = new double[BLOCK_ROWS];
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private int blockRows;
+    private long rows;
+
+    public BinaryResultWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        drain();
+    }
+
+    @Override
+    public void write(Annotation annotation) throws IOException {
+        lipid[blockRows] = code(annotation.getLipid() == null ? null : annotation.getLipid().getName());
+        adduct[blockRows] = code(annotation.getAdduct());
+        mz[blockRows] = annotation.getMz();
+        rt[blockRows] = annotation.getRtMin();
+        intensity[blockRows] = annotation.getIntensity();
+        score[blockRows] = annotation.getScore();
+        normalizedScore[blockRows] = annotation.getNormalizedScore();
+        blockRows++;
+        rows++;
+        if (blockRows == BLOCK_ROWS) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    public long getRows() {
+        return rows;
+    }
+
+    private int code(String text) {
+        if (text == null) {
+            return NULL_STRING;
+        }
+        Integer code = dictionary.get(text);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.put(text, code);
+            newStrings.add(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return code;
+    }
+
+    private void writeBlock() throws IOException {
+        if (blockRows == 0) {
+            return;
+        }
+        int bytes = 2 * Integer.BYTES + blockRows * (3 * Integer.BYTES + 4 * Double.BYTES);
+        for (byte[] string : newStrings) {
+            bytes += Integer.BYTES + string.length;
+        }
+        if (buffer.capacity() < Integer.BYTES + bytes) {
+            buffer = ByteBuffer.allocate(Integer.BYTES + bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.putInt(bytes).putInt(blockRows).putInt(newStrings.size());
+        for (byte[] string : newStrings) {
+            buffer.putInt(string.length).put(string);
+        }
+        for (int i = 0; i < blockRows; i++) buffer.putInt(lipid[i]);
+        for (int i = 0; i < blockRows; i++) buffer.putInt(adduct[i]);
+        for (int i = 0; i < blockRows; i++) buffer.putDouble(mz[i]);
+        for (int i = 0; i < blockRows; i++) buffer.putDouble(rt[i]);
+        for (int i = 0; i < blockRows; i++) buffer.putDouble(intensity[i]);
+        for (int i = 0; i < blockRows; i++) buffer.putInt(score[i]);
+        for (int i = 0; i < blockRows; i++) buffer.putDouble(normalizedScore[i]);
+        drain();
+        newStrings.clear();
+        blockRows = 0;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the pending rows to the file as a (smaller) block
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeBlock();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered little endian writer of one column file.
+ */
+class ColumnWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    ColumnWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    void putDouble(double value) throws IOException {
+        ensure(Double.BYTES);
+        buffer.putDouble(value);
+    }
+
+    void putLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    void putInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    void putByte(byte value) throws IOException {
+        ensure(Byte.BYTES);
+        buffer.put(value);
+    }
+
+    void putBytes(byte[] bytes) throws IOException {
+        for (int offset = 0; offset < bytes.length; ) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
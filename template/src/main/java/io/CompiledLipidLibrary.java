@@ -0,0 +1,205 @@
+package io;
+
+import lipid.Lipid;
+import lipid.LipidLibrary;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Binary lipid library memory mapped at startup. {@link #compile(LipidLibrary, Path)} writes a library once; the
+ * runtime maps the file and reads the sorted mass column directly from the page cache, so opening it costs
+ * milliseconds and the processes that map the same file share its pages. {@link Lipid} objects are created the
+ * first time each one is requested.
+ * <p>
+ * Layout (little endian): magic, version, count, string pool size, then the columns mass (f64), compoundId,
+ * carbons, double bonds, name, formula and type (i32, the last three offsets into the string pool) and finally the
+ * string pool (i32 length + UTF-8 bytes per distinct string).
+ */
+public class CompiledLipidLibrary implements LipidLibrary {
+
+    static final int MAGIC = 0x4C4C4231; // LLB1
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int compoundIdColumn;
+    private final int carbonsColumn;
+    private final int doubleBondsColumn;
+    private final int nameColumn;
+    private final int formulaColumn;
+    private final int typeColumn;
+    private final int stringPool;
+    private final AtomicReferenceArray<Lipid> lipids;
+
+    private CompiledLipidLibrary(MappedByteBuffer buffer, int count) {
+        this.buffer = buffer;
+        this.count = count;
+        this.compoundIdColumn = HEADER_BYTES + count * Double.BYTES;
+        this.carbonsColumn = compoundIdColumn + count * Integer.BYTES;
+        this.doubleBondsColumn = carbonsColumn + count * Integer.BYTES;
+        this.nameColumn = doubleBondsColumn + count * Integer.BYTES;
+        this.formulaColumn = nameColumn + count * Integer.BYTES;
+        this.typeColumn = formulaColumn + count * Integer.BYTES;
+        this.stringPool = typeColumn + count * Integer.BYTES;
+        this.lipids = new AtomicReferenceArray<>(count);
+    }
+
+    /**
+     * Writes the library to the file in the compiled format. The sections are streamed to the file through a small
+     * buffer: only the distinct strings of the pool are kept in memory.
+     */
+    public static void compile(LipidLibrary library, Path file) throws IOException {
+        int count = library.size();
+
+        // Distinct strings of the pool with their offsets, checking the order of the masses before writing
+        Map<String, Integer> offsets = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int poolSize = 0;
+        double previous = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            double mass = library.getMass(i);
+            if (mass < previous) {
+                throw new IllegalArgumentException("The masses of the library are not sorted at " + i);
+            }
+            previous = mass;
+            Lipid lipid = library.getLipid(i);
+            for (String field : new String[]{lipid.getName(), lipid.getFormula(), lipid.getLipidType()}) {
+                String value = orEmpty(field);
+                if (!offsets.containsKey(value)) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    offsets.put(value, poolSize);
+                    strings.add(bytes);
+                    poolSize += Integer.BYTES + bytes.length;
+                }
+            }
+        }
+
+        long size = HEADER_BYTES + (long) count * (Double.BYTES + 6 * Integer.BYTES) + poolSize;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Library too large to compile: " + size + " bytes");
+        }
+        try (ColumnWriter out = new ColumnWriter(file)) {
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(count);
+            out.putInt(poolSize);
+            for (int i = 0; i < count; i++) {
+                out.putDouble(library.getMass(i));
+            }
+            for (int i = 0; i < count; i++) {
+                out.putInt(library.getLipid(i).getCompoundId());
+            }
+            for (int i = 0; i < count; i++) {
+                out.putInt(library.getLipid(i).getCarbonCount());
+            }
+            for (int i = 0; i < count; i++) {
+                out.putInt(library.getLipid(i).getDoubleBondsCount());
+            }
+            for (int i = 0; i < count; i++) {
+                out.putInt(offsets.get(orEmpty(library.getLipid(i).getName())));
+            }
+            for (int i = 0; i < count; i++) {
+                out.putInt(offsets.get(orEmpty(library.getLipid(i).getFormula())));
+            }
+            for (int i = 0; i < count; i++) {
+                out.putInt(offsets.get(orEmpty(library.getLipid(i).getLipidType())));
+            }
+            for (byte[] bytes : strings) {
+                out.putInt(bytes.length);
+                out.putBytes(bytes);
+            }
+        }
+    }
+
+    private static String orEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * @param file file written by {@link #compile(LipidLibrary, Path)}
+     * @return the library mapped in memory
+     */
+    public static CompiledLipidLibrary open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is not a compiled lipid library");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a compiled lipid library");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported compiled lipid library version " + buffer.getInt(4));
+            }
+            int count = buffer.getInt(8);
+            int poolSize = buffer.getInt(12);
+            if (HEADER_BYTES + (long) count * (Double.BYTES + 6 * Integer.BYTES) + poolSize != channel.size()) {
+                throw new IOException(file + " is truncated");
+            }
+            return new CompiledLipidLibrary(buffer, count);
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public double getMass(int index) {
+        return buffer.getDouble(HEADER_BYTES + index * Double.BYTES);
+    }
+
+    @Override
+    public int lowerBound(double mass) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.getDouble(HEADER_BYTES + middle * Double.BYTES) < mass) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The lipid is read from the file the first time it is requested and reused afterwards
+     */
+    @Override
+    public Lipid getLipid(int index) {
+        Lipid lipid = lipids.get(index);
+        if (lipid == null) {
+            lipid = new Lipid(buffer.getInt(compoundIdColumn + index * Integer.BYTES),
+                    readString(nameColumn, index), readString(formulaColumn, index), readString(typeColumn, index),
+                    buffer.getInt(carbonsColumn + index * Integer.BYTES),
+                    buffer.getInt(doubleBondsColumn + index * Integer.BYTES));
+            if (!lipids.compareAndSet(index, null, lipid)) {
+                lipid = lipids.get(index);
+            }
+        }
+        return lipid;
+    }
+
+    private String readString(int column, int index) {
+        int position = stringPool + buffer.getInt(column + index * Integer.BYTES);
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
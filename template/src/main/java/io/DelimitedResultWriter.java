@@ -0,0 +1,207 @@
+package io;
+
+import lipid.Annotation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * CSV or TSV {@link ResultWriter}. Each row is formatted into a reused {@link CharBuffer} without
+ * {@code String.format}, encoded as UTF-8 into a reused {@link ByteBuffer} and the buffer is written to the file when
+ * the next row does not fit, so the file always ends with a complete row.
+ * <p>
+ * Numbers are written with a fixed number of decimals: mz 4, RT 2, intensity 1, normalized score 4. A normalized
+ * score without applied rules is written as NaN.
+ */
+public class DelimitedResultWriter implements ResultWriter {
+
+    static final String[] HEADER = {"lipid", "mz", "rtMin", "adduct", "intensity", "score", "normalizedScore"};
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L};
+    // Values above this are not scaled to a long and fall back to Double.toString
+    private static final double MAX_FIXED = 1e12;
+
+    private final FileChannel channel;
+    private final char delimiter;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private final char[] digits = new char[20];
+    private CharBuffer row = CharBuffer.allocate(256);
+    private long rows;
+
+    public DelimitedResultWriter(Path file, char delimiter) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.delimiter = delimiter;
+        for (int i = 0; i < HEADER.length; i++) {
+            if (i > 0) {
+                append(delimiter);
+            }
+            append(HEADER[i]);
+        }
+        endRow();
+    }
+
+    @Override
+    public void write(Annotation annotation) throws IOException {
+        appendText(annotation.getLipid() == null ? null : annotation.getLipid().getName());
+        append(delimiter);
+        appendFixed(annotation.getMz(), 4);
+        append(delimiter);
+        appendFixed(annotation.getRtMin(), 2);
+        append(delimiter);
+        appendText(annotation.getAdduct());
+        append(delimiter);
+        appendFixed(annotation.getIntensity(), 1);
+        append(delimiter);
+        appendLong(annotation.getScore());
+        append(delimiter);
+        appendFixed(annotation.getNormalizedScore(), 4);
+        endRow();
+        rows++;
+    }
+
+    @Override
+    public long getRows() {
+        return rows;
+    }
+
+    private void endRow() throws IOException {
+        append('\n');
+        row.flip();
+        // Encoding one row never overflows the byte buffer, so only whole rows are written to the file
+        if (bytes.remaining() < row.remaining() * 3) {
+            drain();
+            if (bytes.capacity() < row.remaining() * 3) {
+                throw new IOException("Row of " + row.remaining() + " chars does not fit the write buffer");
+            }
+        }
+        CoderResult result = encoder.encode(row, bytes, true);
+        if (result.isError()) {
+            result.throwException();
+        }
+        encoder.reset();
+        row.clear();
+    }
+
+    private void ensure(int chars) {
+        if (row.remaining() < chars) {
+            CharBuffer larger = CharBuffer.allocate(Math.max(row.capacity() * 2, row.position() + chars));
+            row.flip();
+            larger.put(row);
+            row = larger;
+        }
+    }
+
+    private void append(char c) {
+        ensure(1);
+        row.put(c);
+    }
+
+    private void append(String text) {
+        ensure(text.length());
+        row.put(text);
+    }
+
+    /**
+     * Appends the text quoted when it contains the delimiter, quotes or line breaks. Null is written empty.
+     */
+    private void appendText(String text) {
+        if (text == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == delimiter || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            append(text);
+            return;
+        }
+        append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                append('"');
+            }
+            append(c);
+        }
+        append('"');
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            append(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        ensure(digits.length - start);
+        row.put(digits, start, digits.length - start);
+    }
+
+    /**
+     * Appends the value rounded half up to the given decimals (at most 6)
+     */
+    void appendFixed(double value, int decimals) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= MAX_FIXED) {
+            append(Double.toString(value));
+            return;
+        }
+        long scaled = Math.round(Math.abs(value) * POWERS_OF_TEN[decimals]);
+        if (value < 0 && scaled != 0) {
+            append('-');
+        }
+        appendLong(scaled / POWERS_OF_TEN[decimals]);
+        if (decimals == 0) {
+            return;
+        }
+        append('.');
+        long fraction = scaled % POWERS_OF_TEN[decimals];
+        ensure(decimals);
+        for (int i = decimals - 1; i >= 0; i--) {
+            row.put((char) ('0' + fraction / POWERS_OF_TEN[i] % 10));
+        }
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Writes the buffered rows to the file
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package io;
+
+import lipid.IonizationMode;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Disk backed columnar table of features (annotations with their score and their grouped signals) written by
+ * {@link FeatureTableWriter}. Every column is a little endian file of the table directory, memory mapped when the
+ * table is opened, so the data is paged in by the OS and the heap does not grow with the number of features.
+ * <p>
+ * The table is read through {@link FeatureView} flyweights. It is immutable and can be read from many threads, each
+ * one with its own view.
+ * <p>
+ * The scores are the ones of the annotations when they were written: the table cannot be scored in place, since the
+ * scorings work on {@link lipid.Annotation} facts. Score the annotations materialized with
+ * {@link FeatureView#toAnnotation(lipid.Lipid)} and write them to a new table.
+ * <p>
+ * There is nothing to close: the channels are closed once the columns are mapped, and the mappings are released by
+ * the garbage collector when the table is unreachable.
+ */
+public class FeatureTable {
+
+    static final String HEADER = "features.header";
+    static final String MZ = "mz.f64";
+    static final String RT = "rt.f64";
+    static final String INTENSITY = "intensity.f64";
+    static final String IONIZATION_MODE = "ionizationMode.i8";
+    static final String LIPID_ID = "lipidId.i32";
+    static final String SCORE = "score.i32";
+    static final String SCORES_APPLIED = "scoresApplied.i32";
+    static final String PEAK_OFFSET = "peakOffset.i64";
+    static final String PEAK_MZ = "peakMz.f64";
+    static final String PEAK_INTENSITY = "peakIntensity.f64";
+    // in the order the writer opens them
+    static final String[] COLUMNS = {MZ, RT, INTENSITY, IONIZATION_MODE, LIPID_ID, SCORE, SCORES_APPLIED, PEAK_OFFSET,
+            PEAK_MZ, PEAK_INTENSITY};
+
+    static final int MAGIC = 0x46544231; // FTB1
+    static final int VERSION = 2;
+
+    /**
+     * Lipid id of the features without lipid
+     */
+    public static final int NO_LIPID = -1;
+
+    private final long rows;
+    private final long peaks;
+    private final MappedColumn mz;
+    private final MappedColumn rt;
+    private final MappedColumn intensity;
+    private final MappedColumn ionizationMode;
+    private final MappedColumn lipidId;
+    private final MappedColumn score;
+    private final MappedColumn scoresApplied;
+    private final MappedColumn peakOffset;
+    private final MappedColumn peakMz;
+    private final MappedColumn peakIntensity;
+
+    private FeatureTable(Path directory, long rows, long peaks) throws IOException {
+        this.rows = rows;
+        this.peaks = peaks;
+        this.mz = MappedColumn.map(directory.resolve(MZ));
+        this.rt = MappedColumn.map(directory.resolve(RT));
+        this.intensity = MappedColumn.map(directory.resolve(INTENSITY));
+        this.ionizationMode = MappedColumn.map(directory.resolve(IONIZATION_MODE));
+        this.lipidId = MappedColumn.map(directory.resolve(LIPID_ID));
+        this.score = MappedColumn.map(directory.resolve(SCORE));
+        this.scoresApplied = MappedColumn.map(directory.resolve(SCORES_APPLIED));
+        this.peakOffset = MappedColumn.map(directory.resolve(PEAK_OFFSET));
+        this.peakMz = MappedColumn.map(directory.resolve(PEAK_MZ));
+        this.peakIntensity = MappedColumn.map(directory.resolve(PEAK_INTENSITY));
+        if (mz.byteSize() != rows * Double.BYTES || score.byteSize() != rows * Integer.BYTES
+                || scoresApplied.byteSize() != rows * Integer.BYTES || peakOffset.byteSize() != (rows + 1) * Long.BYTES
+                || peakMz.byteSize() != peaks * Double.BYTES) {
+            throw new IOException("Columns of " + directory + " do not match its header");
+        }
+    }
+
+    /**
+     * @param directory directory written by {@link FeatureTableWriter}
+     * @return the table with its columns mapped
+     */
+    public static FeatureTable open(Path directory) throws IOException {
+        try (DataInputStream header = new DataInputStream(Files.newInputStream(directory.resolve(HEADER)))) {
+            if (header.readInt() != MAGIC) {
+                throw new IOException(directory + " is not a feature table");
+            }
+            int version = header.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported feature table version " + version);
+            }
+            return new FeatureTable(directory, header.readLong(), header.readLong());
+        }
+    }
+
+    static byte encode(IonizationMode ionizationMode) {
+        return ionizationMode == null ? -1 : (byte) ionizationMode.ordinal();
+    }
+
+    private static final IonizationMode[] IONIZATION_MODES = IonizationMode.values();
+
+    /**
+     * @return number of features
+     */
+    public long size() {
+        return rows;
+    }
+
+    /**
+     * @return number of grouped signals of all the features
+     */
+    public long peakCount() {
+        return peaks;
+    }
+
+    public double getMz(long row) {
+        return mz.getDouble(row);
+    }
+
+    public double getRtMin(long row) {
+        return rt.getDouble(row);
+    }
+
+    public double getIntensity(long row) {
+        return intensity.getDouble(row);
+    }
+
+    public IonizationMode getIonizationMode(long row) {
+        byte mode = ionizationMode.getByte(row);
+        return mode < 0 ? null : IONIZATION_MODES[mode];
+    }
+
+    public int getLipidId(long row) {
+        return lipidId.getInt(row);
+    }
+
+    public int getScore(long row) {
+        return score.getInt(row);
+    }
+
+    public int getTotalScoresApplied(long row) {
+        return scoresApplied.getInt(row);
+    }
+
+    /**
+     * @return index of the first grouped signal of the row in the peak columns
+     */
+    public long getPeakFrom(long row) {
+        return peakOffset.getLong(row);
+    }
+
+    /**
+     * @return index after the last grouped signal of the row in the peak columns
+     */
+    public long getPeakTo(long row) {
+        return peakOffset.getLong(row + 1);
+    }
+
+    public double getPeakMz(long peak) {
+        return peakMz.getDouble(peak);
+    }
+
+    public double getPeakIntensity(long peak) {
+        return peakIntensity.getDouble(peak);
+    }
+
+    /**
+     * @return a new view positioned before the first row. Views are not thread safe, use one per thread.
+     */
+    public FeatureView view() {
+        return new FeatureView(this);
+    }
+
+    /**
+     * Moves one view over every row in order
+     */
+    public void forEach(Consumer<FeatureView> action) {
+        FeatureView view = view();
+        for (long row = 0; row < rows; row++) {
+            action.accept(view.moveTo(row));
+        }
+    }
+}
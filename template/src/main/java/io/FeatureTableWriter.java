@@ -0,0 +1,143 @@
+package io;
+
+import lipid.Annotation;
+import lipid.IonizationMode;
+import lipid.PeakList;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams features into the column files of a {@link FeatureTable} directory. Only the write buffers are kept in
+ * memory, so any number of features can be written. The table can be opened once the writer is closed.
+ * <p>
+ * The score of an annotation is written as it is when appended, so append the annotations once they are scored.
+ */
+public class FeatureTableWriter implements Closeable {
+
+    private final Path directory;
+    private final ColumnWriter mz;
+    private final ColumnWriter rt;
+    private final ColumnWriter intensity;
+    private final ColumnWriter ionizationMode;
+    private final ColumnWriter lipidId;
+    private final ColumnWriter score;
+    private final ColumnWriter scoresApplied;
+    private final ColumnWriter peakOffset;
+    private final ColumnWriter peakMz;
+    private final ColumnWriter peakIntensity;
+    private long rows;
+    private long peaks;
+
+    public FeatureTableWriter(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        ColumnWriter[] columns = new ColumnWriter[FeatureTable.COLUMNS.length];
+        int opened = 0;
+        try {
+            for (; opened < columns.length; opened++) {
+                columns[opened] = new ColumnWriter(directory.resolve(FeatureTable.COLUMNS[opened]));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (int i = 0; i < opened; i++) {
+                try {
+                    columns[i].close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+        this.mz = columns[0];
+        this.rt = columns[1];
+        this.intensity = columns[2];
+        this.ionizationMode = columns[3];
+        this.lipidId = columns[4];
+        this.score = columns[5];
+        this.scoresApplied = columns[6];
+        this.peakOffset = columns[7];
+        this.peakMz = columns[8];
+        this.peakIntensity = columns[9];
+        // peakOffset has one entry more than features: the peaks of row r are [offset(r), offset(r + 1))
+        this.peakOffset.putLong(0L);
+    }
+
+    /**
+     * Appends the annotation with its grouped signals and its current score. The lipid is stored by its compound id.
+     */
+    public void append(Annotation annotation) throws IOException {
+        append(annotation.getMz(), annotation.getRtMin(), annotation.getIntensity(), annotation.getIonizationMode(),
+                annotation.getLipid() == null ? FeatureTable.NO_LIPID : annotation.getLipid().getCompoundId(),
+                annotation.getScore(), annotation.getTotalScoresApplied(), annotation.getPeaks());
+    }
+
+    /**
+     * Appends one feature not scored yet.
+     *
+     * @param lipidId compound id of the lipid or {@link FeatureTable#NO_LIPID}
+     * @param signals grouped signals sorted by mz
+     */
+    public void append(double mz, double rt, double intensity, IonizationMode ionizationMode, int lipidId,
+                       PeakList signals) throws IOException {
+        append(mz, rt, intensity, ionizationMode, lipidId, 0, 0, signals);
+    }
+
+    /**
+     * Appends one feature with its score.
+     *
+     * @param lipidId       compound id of the lipid or {@link FeatureTable#NO_LIPID}
+     * @param score         see {@link Annotation#getScore()}
+     * @param scoresApplied see {@link Annotation#getTotalScoresApplied()}
+     * @param signals       grouped signals sorted by mz
+     */
+    public void append(double mz, double rt, double intensity, IonizationMode ionizationMode, int lipidId,
+                       int score, int scoresApplied, PeakList signals) throws IOException {
+        this.mz.putDouble(mz);
+        this.rt.putDouble(rt);
+        this.intensity.putDouble(intensity);
+        this.ionizationMode.putByte(FeatureTable.encode(ionizationMode));
+        this.lipidId.putInt(lipidId);
+        this.score.putInt(score);
+        this.scoresApplied.putInt(scoresApplied);
+        for (int i = 0; i < signals.size(); i++) {
+            peakMz.putDouble(signals.getMz(i));
+            peakIntensity.putDouble(signals.getIntensity(i));
+        }
+        peaks += signals.size();
+        peakOffset.putLong(peaks);
+        rows++;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (ColumnWriter column : new ColumnWriter[]{mz, rt, intensity, ionizationMode, lipidId, score, scoresApplied, peakOffset, peakMz,
+                peakIntensity}) {
+            try {
+                column.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        // The header is written last, so a table without header was not closed properly
+        try (DataOutputStream header = new DataOutputStream(Files.newOutputStream(directory.resolve(FeatureTable.HEADER)))) {
+            header.writeInt(FeatureTable.MAGIC);
+            header.writeInt(FeatureTable.VERSION);
+            header.writeLong(rows);
+            header.writeLong(peaks);
+        }
+    }
+}
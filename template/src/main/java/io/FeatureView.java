@@ -0,0 +1,137 @@
+package io;
+
+import adduct.AdductDetectionStrategy;
+import lipid.Annotation;
+import lipid.IonizationMode;
+import lipid.Lipid;
+import lipid.PeakList;
+
+/**
+ * Flyweight over one row of a {@link FeatureTable} with the getters of {@link Annotation}. Moving the view to another
+ * row does not create objects; the grouped signals are copied into a buffer reused between rows only when they are
+ * needed.
+ */
+public class FeatureView {
+
+    private final FeatureTable table;
+    private long row = -1;
+    private double[] signalsMz = new double[16];
+    private long signalsRow = -1;
+
+    FeatureView(FeatureTable table) {
+        this.table = table;
+    }
+
+    /**
+     * @return this view positioned at the row
+     */
+    public FeatureView moveTo(long row) {
+        if (row < 0 || row >= table.size()) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of " + table.size());
+        }
+        this.row = row;
+        return this;
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public double getMz() {
+        return table.getMz(row);
+    }
+
+    public double getRtMin() {
+        return table.getRtMin(row);
+    }
+
+    public double getIntensity() {
+        return table.getIntensity(row);
+    }
+
+    public IonizationMode getIonizationMode() {
+        return table.getIonizationMode(row);
+    }
+
+    public int getLipidId() {
+        return table.getLipidId(row);
+    }
+
+    public int getScore() {
+        return table.getScore(row);
+    }
+
+    public int getTotalScoresApplied() {
+        return table.getTotalScoresApplied(row);
+    }
+
+    /**
+     * Same as {@link Annotation#getNormalizedScore()} of the written annotation
+     */
+    public double getNormalizedScore() {
+        return (double) getScore() / getTotalScoresApplied();
+    }
+
+    /**
+     * @return number of grouped signals of the row
+     */
+    public int getSignalCount() {
+        return (int) (table.getPeakTo(row) - table.getPeakFrom(row));
+    }
+
+    public double getSignalMz(int signal) {
+        return table.getPeakMz(table.getPeakFrom(row) + signal);
+    }
+
+    public double getSignalIntensity(int signal) {
+        return table.getPeakIntensity(table.getPeakFrom(row) + signal);
+    }
+
+    /**
+     * Same as {@link Annotation#detectAdductFromSignals(IonizationMode, double, AdductDetectionStrategy)} over the row
+     */
+    public String detectAdductFromSignals(IonizationMode ionizationMode, double mzTolerance, AdductDetectionStrategy strategy) {
+        int count = loadSignalsMz();
+        return strategy.detect(getMz(), signalsMz, 0, count, ionizationMode, mzTolerance);
+    }
+
+    private int loadSignalsMz() {
+        int count = getSignalCount();
+        if (signalsRow != row) {
+            if (signalsMz.length < count) {
+                signalsMz = new double[Math.max(count, signalsMz.length * 2)];
+            }
+            long from = table.getPeakFrom(row);
+            for (int i = 0; i < count; i++) {
+                signalsMz[i] = table.getPeakMz(from + i);
+            }
+            signalsRow = row;
+        }
+        return count;
+    }
+
+    /**
+     * Materializes the row with its score, for the few rows that need a real {@link Annotation}
+     *
+     * @param lipid lipid of the row, usually resolved from {@link #getLipidId()}
+     */
+    public Annotation toAnnotation(Lipid lipid) {
+        int count = getSignalCount();
+        double[] mz = new double[count];
+        double[] intensity = new double[count];
+        long from = table.getPeakFrom(row);
+        for (int i = 0; i < count; i++) {
+            mz[i] = table.getPeakMz(from + i);
+            intensity[i] = table.getPeakIntensity(from + i);
+        }
+        Annotation annotation = new Annotation(lipid, getMz(), getIntensity(), getRtMin(), getIonizationMode(),
+                PeakList.of(mz, intensity));
+        annotation.addScores(getScore(), getTotalScoresApplied());
+        return annotation;
+    }
+
+    @Override
+    public String toString() {
+        return row < 0 ? "FeatureView(unpositioned)" : "FeatureView(row=" + row + ", mz=" + getMz() + ", RT=" + getRtMin() + ")";
+    }
+}
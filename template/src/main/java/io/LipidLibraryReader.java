@@ -0,0 +1,132 @@
+package io;
+
+import lipid.Lipid;
+import lipid.LipidCatalog;
+import lipid.LipidDatabase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a lipid library from a CSV or TSV file with the columns compoundId, name, formula, class, carbons,
+ * double bonds and exact mass. The delimiter is a tab if the first line has one, a comma otherwise. A first line that
+ * does not start with a number is taken as the header; lines starting with # are comments.
+ * <p>
+ * Fields can be quoted as in RFC 4180, so names may contain the delimiter: "PC(16:0/18:1), sn-1" is one field and a
+ * doubled quote inside a quoted field is a quote. Quoted fields cannot span lines. Unquoted fields are trimmed.
+ */
+public class LipidLibraryReader {
+
+    private static final int COLUMNS = 7;
+
+    private LipidLibraryReader() {
+    }
+
+    public static LipidDatabase read(Path file) throws IOException {
+        return read(file, new LipidCatalog());
+    }
+
+    /**
+     * @param catalog catalog where the lipids are interned
+     */
+    public static LipidDatabase read(Path file, LipidCatalog catalog) throws IOException {
+        List<Lipid> lipids = new ArrayList<>();
+        double[] masses = new double[1024];
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            char delimiter = 0;
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                boolean first = delimiter == 0;
+                if (first) {
+                    delimiter = line.indexOf('\t') >= 0 ? '\t' : ',';
+                }
+                List<String> fields;
+                try {
+                    fields = split(line, delimiter);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+                if (first && (fields.get(0).isEmpty() || !Character.isDigit(fields.get(0).charAt(0)))) {
+                    continue;
+                }
+                if (fields.size() < COLUMNS) {
+                    throw new IOException(file + ":" + lineNumber + ": expected " + COLUMNS + " columns, got " + fields.size());
+                }
+                try {
+                    Lipid lipid = catalog.getOrCreate(Integer.parseInt(fields.get(0)), fields.get(1), fields.get(2),
+                            fields.get(3), Integer.parseInt(fields.get(4)), Integer.parseInt(fields.get(5)));
+                    if (lipids.size() == masses.length) {
+                        masses = Arrays.copyOf(masses, masses.length * 2);
+                    }
+                    masses[lipids.size()] = Double.parseDouble(fields.get(6));
+                    lipids.add(lipid);
+                } catch (NumberFormatException e) {
+                    throw new IOException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return new LipidDatabase(lipids, Arrays.copyOf(masses, lipids.size()));
+    }
+
+    /**
+     * Splits one line into its fields, unquoting the quoted ones
+     *
+     * @throws IllegalArgumentException if a quote is not closed or is followed by something other than the delimiter
+     */
+    static List<String> split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>(COLUMNS);
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        int n = line.length();
+        while (true) {
+            while (i < n && line.charAt(i) != delimiter && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i < n && line.charAt(i) == '"') {
+                field.setLength(0);
+                int open = i++;
+                while (true) {
+                    if (i == n) {
+                        throw new IllegalArgumentException("quote at column " + (open + 1) + " is not closed");
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < n && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                while (i < n && line.charAt(i) != delimiter && Character.isWhitespace(line.charAt(i))) {
+                    i++;
+                }
+                if (i < n && line.charAt(i) != delimiter) {
+                    throw new IllegalArgumentException("unexpected character after the quoted field at column " + (i + 1));
+                }
+                fields.add(field.toString());
+            } else {
+                int end = line.indexOf(delimiter, i);
+                end = end < 0 ? n : end;
+                fields.add(line.substring(i, end).trim());
+                i = end;
+            }
+            if (i >= n) {
+                return fields;
+            }
+            i++; // the delimiter
+        }
+    }
+}
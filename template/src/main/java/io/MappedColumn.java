@@ -0,0 +1,64 @@
+package io;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read only, little endian column file mapped in chunks, so columns larger than 2 GB can be read with long indexes.
+ * The chunk size is a multiple of every element size, so an element never spans two chunks.
+ */
+final class MappedColumn {
+
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final MappedByteBuffer[] chunks;
+    private final long byteSize;
+
+    private MappedColumn(MappedByteBuffer[] chunks, long byteSize) {
+        this.chunks = chunks;
+        this.byteSize = byteSize;
+    }
+
+    static MappedColumn map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+            MappedByteBuffer[] chunks = new MappedByteBuffer[count];
+            for (int c = 0; c < count; c++) {
+                long position = (long) c << CHUNK_SHIFT;
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(1L << CHUNK_SHIFT, size - position));
+                chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            // The mapping stays valid after the channel is closed
+            return new MappedColumn(chunks, size);
+        }
+    }
+
+    long byteSize() {
+        return byteSize;
+    }
+
+    double getDouble(long index) {
+        long position = index << 3;
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getDouble((int) (position & CHUNK_MASK));
+    }
+
+    long getLong(long index) {
+        long position = index << 3;
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getLong((int) (position & CHUNK_MASK));
+    }
+
+    int getInt(long index) {
+        long position = index << 2;
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getInt((int) (position & CHUNK_MASK));
+    }
+
+    byte getByte(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+    }
+}
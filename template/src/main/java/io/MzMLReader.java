@@ -0,0 +1,238 @@
+package io;
+
+import lipid.IonizationMode;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * StAX reader of the spectra of an mzML (or indexed mzML) file. The m/z and intensity arrays are decoded straight
+ * into the reused arrays of {@link Scan}; chromatograms are skipped. Numpress compressed arrays are not supported.
+ */
+public class MzMLReader implements ScanReader {
+
+    private static final String MS_LEVEL = "MS:1000511";
+    private static final String POSITIVE_SCAN = "MS:1000130";
+    private static final String NEGATIVE_SCAN = "MS:1000129";
+    private static final String SCAN_START_TIME = "MS:1000016";
+    private static final String FLOAT_64 = "MS:1000523";
+    private static final String FLOAT_32 = "MS:1000521";
+    private static final String ZLIB = "MS:1000574";
+    private static final String NO_COMPRESSION = "MS:1000576";
+    private static final String MZ_ARRAY = "MS:1000514";
+    private static final String INTENSITY_ARRAY = "MS:1000515";
+    private static final String SECOND = "UO:0000010";
+    // MS-Numpress linear, pic and slof, alone and followed by zlib
+    private static final Set<String> NUMPRESS = Set.of("MS:1002312", "MS:1002313", "MS:1002314",
+            "MS:1002746", "MS:1002747", "MS:1002748");
+
+    private static final int OTHER_ARRAY = 0;
+    private static final int MZ = 1;
+    private static final int INTENSITY = 2;
+
+    private final InputStream input;
+    private final XMLStreamReader xml;
+    private final BinaryArrayDecoder decoder = new BinaryArrayDecoder();
+    private final Scan scan = new Scan();
+    // cvParams of the referenceableParamGroups: accession, value, unit accession
+    private final Map<String, List<String[]>> paramGroups = new HashMap<>();
+
+    private List<String[]> currentGroup;
+    private boolean inSpectrum;
+    private boolean inBinaryDataArray;
+    private boolean inBinary;
+    private int bits;
+    private boolean zlib;
+    private boolean unsupportedCompression;
+    private int arrayType;
+    private int mzCount;
+    private int intensityCount;
+
+    public MzMLReader(InputStream input) throws IOException {
+        this.input = input;
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            this.xml = factory.createXMLStreamReader(input);
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public Scan getScan() {
+        return scan;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        try {
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    startElement(xml.getLocalName());
+                } else if (event == XMLStreamConstants.CHARACTERS && inBinary) {
+                    decoder.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+                } else if (event == XMLStreamConstants.END_ELEMENT && endElement(xml.getLocalName())) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void startElement(String name) throws IOException {
+        switch (name) {
+            case "referenceableParamGroup":
+                currentGroup = new ArrayList<>();
+                paramGroups.put(xml.getAttributeValue(null, "id"), currentGroup);
+                break;
+            case "spectrum":
+                inSpectrum = true;
+                String index = xml.getAttributeValue(null, "index");
+                scan.reset(index == null ? -1 : Integer.parseInt(index), xml.getAttributeValue(null, "id"));
+                mzCount = 0;
+                intensityCount = 0;
+                break;
+            case "binaryDataArray":
+                if (inSpectrum) {
+                    inBinaryDataArray = true;
+                    bits = 64;
+                    zlib = false;
+                    unsupportedCompression = false;
+                    arrayType = OTHER_ARRAY;
+                }
+                break;
+            case "binary":
+                if (inBinaryDataArray) {
+                    inBinary = true;
+                    decoder.reset();
+                }
+                break;
+            case "cvParam":
+                String accession = xml.getAttributeValue(null, "accession");
+                String value = xml.getAttributeValue(null, "value");
+                String unit = xml.getAttributeValue(null, "unitAccession");
+                if (currentGroup != null) {
+                    currentGroup.add(new String[]{accession, value, unit});
+                } else {
+                    cvParam(accession, value, unit);
+                }
+                break;
+            case "referenceableParamGroupRef":
+                List<String[]> group = paramGroups.get(xml.getAttributeValue(null, "ref"));
+                if (group != null) {
+                    for (String[] param : group) {
+                        cvParam(param[0], param[1], param[2]);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void cvParam(String accession, String value, String unit) throws IOException {
+        if (accession == null) {
+            return;
+        }
+        if (inBinaryDataArray) {
+            switch (accession) {
+                case FLOAT_64: bits = 64; break;
+                case FLOAT_32: bits = 32; break;
+                case ZLIB: zlib = true; break;
+                case NO_COMPRESSION: zlib = false; break;
+                case MZ_ARRAY: arrayType = MZ; break;
+                case INTENSITY_ARRAY: arrayType = INTENSITY; break;
+                default:
+                    // Numpress arrays cannot be decoded, the other cvParams do not change the decoding
+                    unsupportedCompression |= NUMPRESS.contains(accession);
+                    break;
+            }
+        } else if (inSpectrum) {
+            switch (accession) {
+                case MS_LEVEL: scan.setMsLevel(Integer.parseInt(value)); break;
+                case POSITIVE_SCAN: scan.setIonizationMode(IonizationMode.POSITIVE); break;
+                case NEGATIVE_SCAN: scan.setIonizationMode(IonizationMode.NEGATIVE); break;
+                case SCAN_START_TIME:
+                    double time = Double.parseDouble(value);
+                    scan.setRtMin(SECOND.equals(unit) ? time / 60 : time);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return true when a spectrum has been completely read
+     */
+    private boolean endElement(String name) throws IOException {
+        switch (name) {
+            case "referenceableParamGroup":
+                currentGroup = null;
+                return false;
+            case "binary":
+                if (inBinary) {
+                    inBinary = false;
+                    decodeArray();
+                }
+                return false;
+            case "binaryDataArray":
+                inBinaryDataArray = false;
+                return false;
+            case "spectrum":
+                inSpectrum = false;
+                if (mzCount != intensityCount) {
+                    throw new IOException("Spectrum " + scan.getId() + " has " + mzCount + " m/z and "
+                            + intensityCount + " intensities");
+                }
+                scan.setSize(mzCount);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void decodeArray() throws IOException {
+        if (arrayType == OTHER_ARRAY) {
+            return;
+        }
+        if (unsupportedCompression) {
+            throw new IOException("Unsupported compression of the arrays of spectrum " + scan.getId());
+        }
+        int count = decoder.decode(zlib, bits, ByteOrder.LITTLE_ENDIAN);
+        double[] target = arrayType == MZ ? scan.mzBuffer(count) : scan.intensityBuffer(count);
+        System.arraycopy(decoder.values(), 0, target, 0, count);
+        if (arrayType == MZ) {
+            mzCount = count;
+        } else {
+            intensityCount = count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            decoder.close();
+            input.close();
+        }
+    }
+}
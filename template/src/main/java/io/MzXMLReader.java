@@ -0,0 +1,163 @@
+package io;
+
+import lipid.IonizationMode;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+
+/**
+ * StAX reader of the scans of an mzXML file. The interleaved m/z-intensity pairs of each peaks element are decoded
+ * into the reused arrays of {@link Scan}.
+ */
+public class MzXMLReader implements ScanReader {
+
+    private final InputStream input;
+    private final XMLStreamReader xml;
+    private final BinaryArrayDecoder decoder = new BinaryArrayDecoder();
+    private final Scan scan = new Scan();
+
+    private int scans;
+    private boolean inPeaks;
+    private int bits;
+    private boolean zlib;
+    private ByteOrder byteOrder;
+
+    public MzXMLReader(InputStream input) throws IOException {
+        this.input = input;
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            this.xml = factory.createXMLStreamReader(input);
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public Scan getScan() {
+        return scan;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        try {
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = xml.getLocalName();
+                    if (name.equals("scan")) {
+                        startScan();
+                    } else if (name.equals("peaks")) {
+                        startPeaks();
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS && inPeaks) {
+                    decoder.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+                } else if (event == XMLStreamConstants.END_ELEMENT && inPeaks && xml.getLocalName().equals("peaks")) {
+                    // Nested scans come after the peaks of their parent, so the scan is complete here
+                    inPeaks = false;
+                    decodePeaks();
+                    return true;
+                }
+            }
+            return false;
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void startScan() throws IOException {
+        scan.reset(scans++, xml.getAttributeValue(null, "num"));
+        String msLevel = xml.getAttributeValue(null, "msLevel");
+        if (msLevel != null) {
+            scan.setMsLevel(Integer.parseInt(msLevel));
+        }
+        String polarity = xml.getAttributeValue(null, "polarity");
+        if ("+".equals(polarity)) {
+            scan.setIonizationMode(IonizationMode.POSITIVE);
+        } else if ("-".equals(polarity)) {
+            scan.setIonizationMode(IonizationMode.NEGATIVE);
+        }
+        String retentionTime = xml.getAttributeValue(null, "retentionTime");
+        if (retentionTime != null) {
+            scan.setRtMin(parseMinutes(retentionTime));
+        }
+    }
+
+    /**
+     * Parses an xs:duration such as PT390.5S or PT6.5M, whose components may be fractional (unlike
+     * {@link java.time.Duration#parse}), into minutes.
+     */
+    private double parseMinutes(String duration) throws IOException {
+        int time = duration.indexOf('T');
+        if (time < 0 || !duration.startsWith("P") && !duration.startsWith("-P")) {
+            throw new IOException("Invalid retention time " + duration + " of scan " + scan.getId());
+        }
+        double minutes = 0;
+        int start = time + 1;
+        for (int i = start; i < duration.length(); i++) {
+            char unit = duration.charAt(i);
+            if (unit != 'H' && unit != 'M' && unit != 'S') {
+                continue;
+            }
+            double value;
+            try {
+                value = Double.parseDouble(duration.substring(start, i));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid retention time " + duration + " of scan " + scan.getId(), e);
+            }
+            minutes += unit == 'H' ? value * 60 : unit == 'M' ? value : value / 60;
+            start = i + 1;
+        }
+        return duration.startsWith("-") ? -minutes : minutes;
+    }
+
+    private void startPeaks() throws IOException {
+        String precision = xml.getAttributeValue(null, "precision");
+        bits = precision == null ? 32 : Integer.parseInt(precision);
+        String compression = xml.getAttributeValue(null, "compressionType");
+        zlib = "zlib".equals(compression);
+        if (compression != null && !zlib && !"none".equals(compression)) {
+            throw new IOException("Unsupported compression " + compression + " of scan " + scan.getId());
+        }
+        String contentType = xml.getAttributeValue(null, "contentType");
+        if (contentType == null) {
+            contentType = xml.getAttributeValue(null, "pairOrder");
+        }
+        if (contentType != null && !contentType.equals("m/z-int")) {
+            throw new IOException("Unsupported peaks content " + contentType + " of scan " + scan.getId());
+        }
+        byteOrder = "little".equals(xml.getAttributeValue(null, "byteOrder")) ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        decoder.reset();
+        inPeaks = true;
+    }
+
+    private void decodePeaks() throws IOException {
+        int count = decoder.decode(zlib, bits, byteOrder) / 2;
+        double[] values = decoder.values();
+        double[] mz = scan.mzBuffer(count);
+        double[] intensity = scan.intensityBuffer(count);
+        for (int i = 0; i < count; i++) {
+            mz[i] = values[2 * i];
+            intensity[i] = values[2 * i + 1];
+        }
+        scan.setSize(count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            decoder.close();
+            input.close();
+        }
+    }
+}
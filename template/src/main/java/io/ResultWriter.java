@@ -0,0 +1,41 @@
+package io;
+
+import lipid.Annotation;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Streaming exporter of scored annotations: lipid, m/z, RT, adduct, intensity, raw and normalized score. Rows are
+ * written through a reused buffer and reach the file in whole rows (or whole blocks), so the output of an interrupted
+ * run is still readable up to the last flush.
+ */
+public interface ResultWriter extends Closeable, Flushable {
+
+    void write(Annotation annotation) throws IOException;
+
+    default void writeAll(Iterable<Annotation> annotations) throws IOException {
+        for (Annotation annotation : annotations) {
+            write(annotation);
+        }
+    }
+
+    long getRows();
+
+    /**
+     * @param file .csv or .tsv for delimited text, any other extension for the binary columnar format
+     * @return a writer of the file, replacing it if it exists
+     */
+    static ResultWriter open(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".csv")) {
+            return new DelimitedResultWriter(file, ',');
+        }
+        if (name.endsWith(".tsv")) {
+            return new DelimitedResultWriter(file, '\t');
+        }
+        return new BinaryResultWriter(file);
+    }
+}
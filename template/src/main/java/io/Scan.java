@@ -0,0 +1,141 @@
+package io;
+
+import lipid.IonizationMode;
+import lipid.PeakList;
+
+import java.util.Arrays;
+
+/**
+ * One scan of a run read by a {@link ScanReader}. The reader reuses the same scan and its arrays for every scan, so
+ * the values are only valid until the next call to {@link ScanReader#next()}; copy them (for instance with
+ * {@link #toPeakList()}) to keep them.
+ */
+public class Scan {
+
+    private int index;
+    private String id;
+    private int msLevel;
+    private double rtMin;
+    private IonizationMode ionizationMode;
+    private double[] mz = new double[1024];
+    private double[] intensity = new double[1024];
+    private int size;
+
+    void reset(int index, String id) {
+        this.index = index;
+        this.id = id;
+        this.msLevel = 0;
+        this.rtMin = Double.NaN;
+        this.ionizationMode = null;
+        this.size = 0;
+    }
+
+    void setMsLevel(int msLevel) {
+        this.msLevel = msLevel;
+    }
+
+    void setRtMin(double rtMin) {
+        this.rtMin = rtMin;
+    }
+
+    void setIonizationMode(IonizationMode ionizationMode) {
+        this.ionizationMode = ionizationMode;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * @return the mz buffer with room for at least capacity values
+     */
+    double[] mzBuffer(int capacity) {
+        if (mz.length < capacity) {
+            mz = new double[Math.max(capacity, mz.length * 2)];
+        }
+        return mz;
+    }
+
+    /**
+     * @return the intensity buffer with room for at least capacity values
+     */
+    double[] intensityBuffer(int capacity) {
+        if (intensity.length < capacity) {
+            intensity = new double[Math.max(capacity, intensity.length * 2)];
+        }
+        return intensity;
+    }
+
+    /**
+     * @return position of the scan in the file, from 0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return native id of the scan (id of mzML, num of mzXML)
+     */
+    public String getId() {
+        return id;
+    }
+
+    public int getMsLevel() {
+        return msLevel;
+    }
+
+    /**
+     * @return retention time in minutes, NaN if the file does not have it
+     */
+    public double getRtMin() {
+        return rtMin;
+    }
+
+    /**
+     * @return polarity of the scan, null if the file does not have it
+     */
+    public IonizationMode getIonizationMode() {
+        return ionizationMode;
+    }
+
+    /**
+     * @return number of data points of the scan
+     */
+    public int size() {
+        return size;
+    }
+
+    public double getMz(int index) {
+        return mz[index];
+    }
+
+    public double getIntensity(int index) {
+        return intensity[index];
+    }
+
+    /**
+     * @return the reused mz array; only the first {@link #size()} values belong to the scan
+     */
+    public double[] getMzArray() {
+        return mz;
+    }
+
+    /**
+     * @return the reused intensity array; only the first {@link #size()} values belong to the scan
+     */
+    public double[] getIntensityArray() {
+        return intensity;
+    }
+
+    /**
+     * @return a copy of the data points of the scan
+     */
+    public PeakList toPeakList() {
+        return PeakList.of(Arrays.copyOf(mz, size), Arrays.copyOf(intensity, size));
+    }
+
+    @Override
+    public String toString() {
+        return "Scan(index=" + index + ", id=" + id + ", msLevel=" + msLevel + ", RT=" + rtMin + ", size=" + size + ")";
+    }
+}
@@ -0,0 +1,52 @@
+package io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Streaming reader of the scans of a run. Only one scan is held in memory at a time and it is reused, see
+ * {@link Scan}.
+ */
+public interface ScanReader extends Closeable {
+
+    /**
+     * Reads the next scan
+     *
+     * @return false at the end of the file
+     */
+    boolean next() throws IOException;
+
+    /**
+     * @return the scan read by the last call to {@link #next()}
+     */
+    Scan getScan();
+
+    /**
+     * Calls the action with every remaining scan
+     */
+    default void forEach(Consumer<Scan> action) throws IOException {
+        while (next()) {
+            action.accept(getScan());
+        }
+    }
+
+    /**
+     * @param file mzML (also indexed mzML) or mzXML file, chosen by the extension
+     * @return a reader of the scans of the file
+     */
+    static ScanReader open(Path file) throws IOException {
+        InputStream input = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+        String name = file.getFileName().toString().toLowerCase();
+        try {
+            return name.endsWith(".mzxml") ? new MzXMLReader(input) : new MzMLReader(input);
+        } catch (IOException | RuntimeException e) {
+            input.close();
+            throw e;
+        }
+    }
+}
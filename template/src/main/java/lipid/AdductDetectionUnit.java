@@ -0,0 +1,36 @@
+package lipid;
+
+import org.drools.ruleunits.api.DataSource;
+import org.drools.ruleunits.api.DataStore;
+import org.drools.ruleunits.api.RuleUnitData;
+
+/**
+ * Rule unit of adducts.drl: detects the adduct of annotations from their grouped signals as
+ * {@link Annotation#detectAdductFromSignals(IonizationMode, double)} does. The signals and the adduct hypotheses are
+ * keyed by mz bucket, so the rules only join signals of the buckets around each expected mz. The facts are created by
+ * {@link AdductDetectionSession} and the rules record on each {@link AdductRequest} the first adduct explained.
+ */
+public class AdductDetectionUnit implements RuleUnitData {
+
+    private final DataStore<AdductRequest> requests;
+    private final DataStore<PeakFact> peaks;
+    private final DataStore<AdductHypothesis> hypotheses;
+
+    public AdductDetectionUnit() {
+        this.requests = DataSource.createStore();
+        this.peaks = DataSource.createStore();
+        this.hypotheses = DataSource.createStore();
+    }
+
+    public DataStore<AdductRequest> getRequests() {
+        return requests;
+    }
+
+    public DataStore<PeakFact> getPeaks() {
+        return peaks;
+    }
+
+    public DataStore<AdductHypothesis> getHypotheses() {
+        return hypotheses;
+    }
+}
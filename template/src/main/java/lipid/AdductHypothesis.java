@@ -0,0 +1,58 @@
+package lipid;
+
+import adduct.AdductDescriptor;
+
+/**
+ * Fact of {@link AdductDetectionUnit}: if the annotation were the adduct, another signal would be expected at
+ * expectedMz. Each hypothesis probes one mz bucket, so the join with the signals is an indexed equality.
+ */
+public class AdductHypothesis {
+
+    private final AdductRequest request;
+    private final AdductDescriptor adduct;
+    private final int priority;
+    private final double expectedMz;
+    private final double mzTolerance;
+    private final long probeBucket;
+
+    /**
+     * @param adduct   adduct hypothesized for the annotation
+     * @param priority position of the adduct in the adducts of the ionization mode: the first explained one wins
+     */
+    public AdductHypothesis(AdductRequest request, AdductDescriptor adduct, int priority, double expectedMz,
+                            double mzTolerance, long probeBucket) {
+        this.request = request;
+        this.adduct = adduct;
+        this.priority = priority;
+        this.expectedMz = expectedMz;
+        this.mzTolerance = mzTolerance;
+        this.probeBucket = probeBucket;
+    }
+
+    public AdductRequest getRequest() {
+        return request;
+    }
+
+    public AdductDescriptor getAdduct() {
+        return adduct;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public double getExpectedMz() {
+        return expectedMz;
+    }
+
+    public long getProbeBucket() {
+        return probeBucket;
+    }
+
+    /**
+     * Same comparison as the nested loop detection
+     */
+    public boolean explains(double mz) {
+        return Math.abs(expectedMz - mz) <= mzTolerance;
+    }
+}
@@ -0,0 +1,51 @@
+package lipid;
+
+import adduct.AdductDetectionStrategy;
+
+/**
+ * Fact of {@link AdductDetectionUnit}: the adduct of the annotation has to be detected from its grouped signals
+ */
+public class AdductRequest {
+
+    private final Annotation annotation;
+    private final int signals;
+    private int bestPriority = Integer.MAX_VALUE;
+    private String bestAdduct;
+
+    public AdductRequest(Annotation annotation, int signals) {
+        this.annotation = annotation;
+        this.signals = signals;
+    }
+
+    public Annotation getAnnotation() {
+        return annotation;
+    }
+
+    /**
+     * @return number of grouped signals of the annotation
+     */
+    public int getSignals() {
+        return signals;
+    }
+
+    /**
+     * Called by the rules when a grouped signal explains the adduct hypothesis of this priority
+     */
+    public void explain(int priority, String adduct) {
+        if (priority < bestPriority) {
+            bestPriority = priority;
+            bestAdduct = adduct;
+        }
+    }
+
+    /**
+     * @return the first adduct explained, or the same values as {@link AdductDetectionStrategy} when there are not
+     * enough signals or none explains an adduct
+     */
+    public String getAdduct() {
+        if (signals < 2) {
+            return AdductDetectionStrategy.NOT_ENOUGH_SIGNALS;
+        }
+        return bestAdduct == null ? AdductDetectionStrategy.NOT_DETECTED : bestAdduct;
+    }
+}
@@ -2,9 +2,12 @@
 
 package lipid;
 
-import adduct.Adduct;
-import adduct.AdductList;
+import adduct.AdductDetectionStrategy;
+import adduct.SortedPeakAdductDetection;
 import lipid.Lipid;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.*;
 
 /**
@@ -12,7 +15,16 @@ import java.util.*;
  */
 public class Annotation {
 
+    private static final AdductDetectionStrategy DEFAULT_ADDUCT_DETECTION = new SortedPeakAdductDetection();
+    private static final VarHandle SCORE;
 
+    static {
+        try {
+            SCORE = MethodHandles.lookup().findVarHandle(Annotation.class, "scoreAndCount", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     private final Lipid lipid;
     private final double mz;
@@ -20,9 +32,11 @@ public class Annotation {
     private final double rtMin;
     private final IonizationMode ionizationMode;
     private String adduct; // !!TODO The adduct will be detected based on the groupedSignals
-    private final Set<Peak> groupedSignals;
-    private int score;
-    private int totalScoresApplied;
+    private PeakList groupedSignals;
+    private Set<Peak> groupedSignalsView; // compatibility view of groupedSignals, created on the first request
+    // score in the high 32 bits and totalScoresApplied in the low 32 bits, updated with one atomic add so concurrent
+    // rule consequences need no lock and readers always see a score and a count of the same moment
+    private volatile long scoreAndCount;
 
 
     /**
@@ -33,7 +47,7 @@ public class Annotation {
      * @param ionizationMode
      */
     public Annotation(Lipid lipid, double mz, double intensity, double retentionTime, IonizationMode ionizationMode) {
-        this(lipid, mz, intensity, retentionTime, ionizationMode, Collections.emptySet());
+        this(lipid, mz, intensity, retentionTime, ionizationMode, PeakList.EMPTY);
     }
 
     /**
@@ -45,24 +59,57 @@ public class Annotation {
      * @param groupedSignals
      */
     public Annotation(Lipid lipid, double mz, double intensity, double retentionTime, IonizationMode ionizationMode, Set<Peak> groupedSignals) {
+        //The set is sorted to help the program to deisotope the signals (see Deisotoper) plus detect the adduct
+        //The signals are sorted by mz ascending and duplicated mz are removed, as the TreeSet used before did
+        this(lipid, mz, intensity, retentionTime, ionizationMode, PeakList.of(groupedSignals));
+    }
+
+    /**
+     * @param lipid
+     * @param mz
+     * @param intensity
+     * @param retentionTime
+     * @param ionizationMode
+     * @param groupedSignals signals sorted by mz
+     */
+    public Annotation(Lipid lipid, double mz, double intensity, double retentionTime, IonizationMode ionizationMode, PeakList groupedSignals) {
         this.lipid = lipid;
         this.mz = mz;
         this.rtMin = retentionTime;
         this.intensity = intensity;
         this.ionizationMode = ionizationMode;
-        // !!TODO This set should be sorted according to help the program to deisotope the signals plus detect the adduct
-        //In order for the TreeSet to work, the Peak class must implement Comparable, the compareTo method must be implemented to compare the mz values of the peaks
-        //TreeSet uses the natural ordering of the elements — which is now defined in Peak.compareTo(...) as mz ascending.
-        //Removes duplicates based on comparison (compareTo) not on equals()
-        this.groupedSignals = new TreeSet<>(groupedSignals);
-        this.score = 0;
-        this.totalScoresApplied = 0;
+        this.groupedSignals = groupedSignals;
     }
 
     public Lipid getLipid() {
         return lipid;
     }
 
+    /**
+     * Join bucket of the carbon elution rules, see {@link Lipid#getClassDoubleBondsKey()}
+     */
+    public long getClassDoubleBondsKey() {
+        return lipid.getClassDoubleBondsKey();
+    }
+
+    /**
+     * Join bucket of the double bond elution rules, see {@link Lipid#getClassCarbonsKey()}
+     */
+    public long getClassCarbonsKey() {
+        return lipid.getClassCarbonsKey();
+    }
+
+    /**
+     * Join bucket of the class elution rules, see {@link Lipid#getCarbonsDoubleBondsKey()}
+     */
+    public long getCarbonsDoubleBondsKey() {
+        return lipid.getCarbonsDoubleBondsKey();
+    }
+
+    public int getLipidTypeRank() {
+        return lipid.getLipidTypeRank();
+    }
+
     public double getMz() {
         return mz;
     }
@@ -87,23 +134,75 @@ public class Annotation {
         return ionizationMode;
     }
 
+    /**
+     * @return unmodifiable view of the grouped signals sorted by mz
+     */
     public Set<Peak> getGroupedSignals() {
-        return Collections.unmodifiableSet(groupedSignals);
+        Set<Peak> view = groupedSignalsView;
+        if (view == null) {
+            view = groupedSignals.asSet();
+            groupedSignalsView = view;
+        }
+        return view;
+    }
+
+    /**
+     * @return the grouped signals sorted by mz
+     */
+    public PeakList getPeaks() {
+        return groupedSignals;
+    }
+
+    /**
+     * Replaces the grouped signals by their monoisotopic peaks, so the adduct detection only compares monoisotopic
+     * signals
+     */
+    public void deisotope(Deisotoper deisotoper) {
+        this.groupedSignals = deisotoper.deisotope(groupedSignals);
+        this.groupedSignalsView = null;
     }
 
 
     public int getScore() {
-        return score;
+        return score(scoreAndCount);
     }
 
     public void setScore(int score) {
-        this.score = score;
+        long current;
+        do {
+            current = scoreAndCount;
+        } while (!SCORE.compareAndSet(this, current, pack(score, count(current))));
+    }
+
+    public int getTotalScoresApplied() {
+        return count(scoreAndCount);
     }
 
     // !CHECK Take into account that the score should be normalized between -1 and 1
     public void addScore(int delta) {
-        this.score += delta;
-        this.totalScoresApplied++;
+        SCORE.getAndAdd(this, pack(delta, 1));
+    }
+
+    /**
+     * Applies at once the evidence of several rule firings, as {@code timesApplied} calls to {@link #addScore(int)}
+     * whose deltas sum scoreDelta. Negative values reverse previous evidence.
+     */
+    public void addScores(int scoreDelta, int timesApplied) {
+        SCORE.getAndAdd(this, pack(scoreDelta, timesApplied));
+    }
+
+    private static long pack(int score, int count) {
+        // Adding packed values adds both halves while the count stays non negative: a negative count borrows from
+        // the score half exactly as the two's complement of the sum expects
+        return ((long) score << 32) + count;
+    }
+
+    private static int score(long scoreAndCount) {
+        return (int) (scoreAndCount >> 32);
+    }
+
+    private static int count(long scoreAndCount) {
+        return (int) scoreAndCount;
     }
 
     /**
@@ -111,7 +210,8 @@ public class Annotation {
      * has been applied.
      */
     public double getNormalizedScore() {
-        return (double) this.score / this.totalScoresApplied;
+        long current = scoreAndCount;
+        return (double) score(current) / count(current);
     }
 
     @Override
@@ -132,111 +232,31 @@ public class Annotation {
     @Override
     public String toString() {
         return String.format("Annotation(%s, mz=%.4f, RT=%.2f, adduct=%s, intensity=%.1f, score=%d)",
-                lipid.getName(), mz, rtMin, adduct, intensity, score);
+                lipid.getName(), mz, rtMin, adduct, intensity, getScore());
     }
 
 
     // !!TODO Detect the adduct with an algorithm or with drools, up to the user.
 
-    //ALGORITHM DONE BY GONZALO FERNANDEZ AND FERNANDO DE MEDINA
+    /**
+     * Detects the adduct of the annotation from the grouped signals with the default strategy
+     *
+     * @param ionizationMode ionization mode used to choose the adduct candidates
+     * @param mzTolerance    absolute mz tolerance
+     * @return the adduct detected, or one of the not detected values of {@link AdductDetectionStrategy}
+     */
     public String detectAdductFromSignals(IonizationMode ionizationMode, double mzTolerance) {
-        // Define la tolerancia en ppm para considerar dos masas como equivalentes
-
-
-        if (groupedSignals == null || groupedSignals.size() < 2) {
-            System.out.println("detectAdduct: Not enough signals (" +
-                    (groupedSignals == null ? 0 : groupedSignals.size()) + ")");
-            return "Unknown";
-        }
-
-        // Solo se ejecuta si la ionización es positiva
-        if (ionizationMode == IonizationMode.POSITIVE) {
-
-            // Recorremos todos los posibles aductos para la anotación principal
-            for (Map.Entry<String, Double> entry : AdductList.MAPMZPOSITIVEADDUCTS.entrySet()) {
-
-                String adductAnnotation = entry.getKey();
-                double monoisotopicMassAdduct = Adduct.getMonoisotopicMassFromMZ(this.mz, adductAnnotation);
-
-                System.out.println("\n--- Probando aducto para la anotación: " + adductAnnotation + " ---");
-                System.out.println("Masa monoisotópica estimada de la anotación con " + adductAnnotation + ": " + monoisotopicMassAdduct);
-
-
-                // Recorremos cada uno de los picos agrupados dentro de la anotación
-
-                for (Peak peak : groupedSignals) {
-                    double peakMz = peak.getMz();
-                    System.out.println("\n   Analizando peak con m/z = " + peakMz);
-
-                    if (Math.abs(peakMz - this.mz) <= mzTolerance) {
-                        //It's the same peak as the objective, so I skip it.
-                        continue;
-                    }
-
-                    // Probamos todos los posibles aductos para ese peak
-                    for (Map.Entry<String, Double> entry2 : AdductList.MAPMZPOSITIVEADDUCTS.entrySet()) {
-                        String adductPeak = entry2.getKey();
-                        double mzForThatPeak = Adduct.getMZFromMonoisotopicMass(monoisotopicMassAdduct, adductPeak);
-                        double diff = Math.abs(mzForThatPeak - peakMz);
-                        System.out.println("secondAdduct=" + adductPeak + ", expectedMz=" + mzForThatPeak + ", observed=" + peakMz + ", diff=" + diff);
-                        if (diff <= mzTolerance) {
-                            System.out.println("DETECTED adduct: " + adductAnnotation + " (via " + adductPeak + ")");
-                            return adductAnnotation;
-                        }
-                    }
-                }
-
-
-            }
-        } else if (ionizationMode == IonizationMode.NEGATIVE) {
-            // Recorremos todos los posibles aductos para la anotación principal
-            for (Map.Entry<String, Double> entry : AdductList.MAPMZNEGATIVEADDUCTS.entrySet()) {
-
-                String adductAnnotation = entry.getKey();
-                double monoisotopicMassAdduct = Adduct.getMonoisotopicMassFromMZ(this.mz, adductAnnotation);
-
-                System.out.println("\n--- Probando aducto para la anotación: " + adductAnnotation + " ---");
-                System.out.println("Masa monoisotópica estimada de la anotación con " + adductAnnotation + ": " + monoisotopicMassAdduct);
-
-
-                // Recorremos cada uno de los picos agrupados dentro de la anotación
-
-                for (Peak peak : groupedSignals) {
-                    double peakMz = peak.getMz();
-                    System.out.println("\n   Analizando peak con m/z = " + peakMz);
-
-                    if (Math.abs(peakMz - this.mz) <= mzTolerance) {
-                        //It's the same peak as the objective, so I skip it.
-                        continue;
-                    }
-
-                    // Probamos todos los posibles aductos para ese peak
-                    for (Map.Entry<String, Double> entry2 : AdductList.MAPMZNEGATIVEADDUCTS.entrySet()) {
-                        String adductPeak = entry2.getKey();
-                        double mzForThatPeak = Adduct.getMZFromMonoisotopicMass(monoisotopicMassAdduct, adductPeak);
-                        double diff = Math.abs(mzForThatPeak - peakMz);
-                        System.out.println("secondAdduct=" + adductPeak + ", expectedMz=" + mzForThatPeak + ", observed=" + peakMz + ", diff=" + diff);
-                        if (diff <= mzTolerance) {
-                            System.out.println("DETECTED adduct: " + adductAnnotation + " (via " + adductPeak + ")");
-                            return adductAnnotation;
-                        }
-                    }
-                }
-            }
-        }
-        return "Unkown";
+        return detectAdductFromSignals(ionizationMode, mzTolerance, DEFAULT_ADDUCT_DETECTION);
     }
 
-
-
-
+    /**
+     * @param ionizationMode ionization mode used to choose the adduct candidates
+     * @param mzTolerance    absolute mz tolerance
+     * @param strategy       algorithm used to detect the adduct
+     * @return the adduct detected, or one of the not detected values of {@link AdductDetectionStrategy}
+     */
+    public String detectAdductFromSignals(IonizationMode ionizationMode, double mzTolerance, AdductDetectionStrategy strategy) {
+        double[] signalsMz = groupedSignals.mzColumn();
+        return strategy.detect(this.mz, signalsMz, 0, signalsMz.length, ionizationMode, mzTolerance);
+    }
 }
-
-
-
-
-
-
-
-
-
@@ -0,0 +1,127 @@
+package lipid;
+
+import adduct.AdductDescriptor;
+import adduct.AdductDetectionStrategy;
+import adduct.AdductRegistry;
+import adduct.SortedPeakAdductDetection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs the adduct detection, and optionally the candidate search, of many features on a {@link ForkJoinPool}.
+ * <p>
+ * The features are split in halves while there are idle workers to steal them, so small batches are not split more
+ * than needed and uneven features are balanced. The annotations are only read on the parallel path; the results are
+ * returned in the order of the features, and {@link #assignAdducts(Collection)} sets the adducts once the work is joined.
+ */
+public class BatchAnnotator {
+
+    private static final int MIN_SPLIT = 64;
+
+    private final ForkJoinPool pool;
+    private final AdductDetectionStrategy strategy;
+    private final double mzTolerance;
+    private final CandidateSearch candidateSearch;
+
+    /**
+     * @param pool            pool that runs the batch
+     * @param strategy        adduct detection algorithm
+     * @param mzTolerance     absolute mz tolerance of the adduct detection
+     * @param candidateSearch candidate search run after the adduct detection, or null to skip it
+     */
+    public BatchAnnotator(ForkJoinPool pool, AdductDetectionStrategy strategy, double mzTolerance, CandidateSearch candidateSearch) {
+        this.pool = pool;
+        this.strategy = strategy;
+        this.mzTolerance = mzTolerance;
+        this.candidateSearch = candidateSearch;
+    }
+
+    public BatchAnnotator(double mzTolerance) {
+        this(ForkJoinPool.commonPool(), new SortedPeakAdductDetection(), mzTolerance, null);
+    }
+
+    /**
+     * @return the results of the features in the same order
+     */
+    public List<FeatureResult> annotate(Collection<Annotation> features) {
+        List<Annotation> list = features instanceof List && features instanceof RandomAccess
+                ? (List<Annotation>) features
+                : new ArrayList<>(features);
+        FeatureResult[] results = new FeatureResult[list.size()];
+        pool.invoke(new AnnotateTask(list, results, 0, results.length));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * @return the results of the features in the order of the stream
+     */
+    public List<FeatureResult> annotate(Stream<Annotation> features) {
+        return annotate(features.collect(Collectors.toList()));
+    }
+
+    /**
+     * Detects the adducts in parallel and sets them in the annotations after the parallel work has finished
+     *
+     * @return the results of the features in the same order
+     */
+    public List<FeatureResult> assignAdducts(Collection<Annotation> features) {
+        List<FeatureResult> results = annotate(features);
+        for (FeatureResult result : results) {
+            result.getAnnotation().setAdduct(result.getAdduct());
+        }
+        return results;
+    }
+
+    private FeatureResult annotate(Annotation feature) {
+        String adduct = feature.detectAdductFromSignals(feature.getIonizationMode(), mzTolerance, strategy);
+        List<LipidCandidate> candidates = Collections.emptyList();
+        if (candidateSearch != null) {
+            AdductDescriptor descriptor = AdductRegistry.get(adduct);
+            // Without adduct every adduct of the ionization mode is a hypothesis
+            candidates = descriptor != null
+                    ? candidateSearch.search(feature.getMz(), descriptor)
+                    : candidateSearch.search(feature.getMz(), feature.getIonizationMode());
+        }
+        return new FeatureResult(feature, adduct, candidates);
+    }
+
+    // Never serialized: the task only lives during one invocation of the pool
+    @SuppressWarnings("serial")
+    private class AnnotateTask extends RecursiveAction {
+
+        private final List<Annotation> features;
+        private final FeatureResult[] results;
+        private final int from;
+        private final int to;
+
+        AnnotateTask(List<Annotation> features, FeatureResult[] results, int from, int to) {
+            this.features = features;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int size = to - from;
+            if (size > MIN_SPLIT && getSurplusQueuedTaskCount() <= 2) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new AnnotateTask(features, results, from, middle),
+                        new AnnotateTask(features, results, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                results[i] = annotate(features.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package lipid;
+
+import adduct.AdductDescriptor;
+import adduct.AdductRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the candidate lipids of observed mz values in a {@link LipidLibrary}. For every adduct of the ionization mode
+ * the mz is converted to a neutral mass and the lipids within the ppm window are found by binary search over the
+ * sorted masses. The search is stateless, so it can be shared by many threads.
+ */
+public class CandidateSearch {
+
+    private final LipidLibrary library;
+    private final double ppmTolerance;
+
+    /**
+     * @param library      lipids searched
+     * @param ppmTolerance tolerance in ppm between the library mass and the mass computed from the mz
+     */
+    public CandidateSearch(LipidLibrary library, double ppmTolerance) {
+        this.library = library;
+        this.ppmTolerance = ppmTolerance;
+    }
+
+    /**
+     * @return the candidates of the mz, grouped by adduct in the order of {@link adduct.AdductList} and by mass
+     */
+    public List<LipidCandidate> search(double mz, IonizationMode ionizationMode) {
+        List<LipidCandidate> candidates = new ArrayList<>();
+        for (AdductDescriptor adduct : AdductRegistry.forMode(ionizationMode)) {
+            search(mz, adduct, candidates);
+        }
+        return candidates;
+    }
+
+    /**
+     * @return the candidates of the mz with a known adduct, by mass
+     */
+    public List<LipidCandidate> search(double mz, AdductDescriptor adduct) {
+        List<LipidCandidate> candidates = new ArrayList<>();
+        search(mz, adduct, candidates);
+        return candidates;
+    }
+
+    private void search(double mz, AdductDescriptor adduct, List<LipidCandidate> candidates) {
+        double mass = adduct.toMonoisotopicMass(mz);
+        double window = Math.abs(mass) * ppmTolerance / 1000000;
+        for (int i = library.lowerBound(mass - window); i < library.size(); i++) {
+            double libraryMass = library.getMass(i);
+            if (libraryMass > mass + window) {
+                break;
+            }
+            candidates.add(new LipidCandidate(library.getLipid(i), adduct, libraryMass,
+                    Math.abs(mass - libraryMass) * 1000000 / libraryMass));
+        }
+    }
+
+    /**
+     * Searches many mz in parallel
+     *
+     * @return the candidates of each mz, in the same order as the mz
+     */
+    public List<List<LipidCandidate>> search(double[] mz, IonizationMode ionizationMode) {
+        List<List<LipidCandidate>> candidates = new ArrayList<>(mz.length);
+        IntStream.range(0, mz.length).parallel()
+                .mapToObj(i -> search(mz[i], ionizationMode))
+                .forEachOrdered(candidates::add);
+        return candidates;
+    }
+}
@@ -0,0 +1,173 @@
+package lipid;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Collapses the 13C isotope envelopes of a list of peaks onto their monoisotopic peak. Consecutive isotopes of charge
+ * z are {@link #C13_SPACING}/z apart; the monoisotopic peak keeps its mz and intensity and records the charge.
+ * <p>
+ * A peak at the right spacing is only an isotope if its intensity is plausible: the k-th isotope cannot be more
+ * intense than the previous one times (n - k + 1) / k * p / (1 - p), the binomial ratio of n carbons with a 13C
+ * abundance p, where n is the largest carbon count of the neutral mass (mass / 12), with some slack for the noise of
+ * the intensities.
+ * <p>
+ * The peaks are walked once in mz order. The first isotope of each charge is searched from a pointer that only moves
+ * forward and every further isotope with a binary search of its tolerance window, so the cost is
+ * O(n * maxCharge * MAX_ISOTOPES * log n) plus the peaks inside the tolerance windows, whatever the density of peaks
+ * between the isotopes.
+ */
+public class Deisotoper {
+
+    /**
+     * Mass difference between 13C and 12C
+     */
+    public static final double C13_SPACING = 1.0033548;
+
+    /**
+     * Natural abundance of 13C
+     */
+    public static final double C13_ABUNDANCE = 0.0107;
+
+    private static final int MAX_ISOTOPES = 6;
+    // the observed intensity ratio can exceed the theoretical bound by this factor
+    private static final double INTENSITY_SLACK = 1.5;
+    private static final double CARBON_MASS = 12.0;
+
+    private final double ppmTolerance;
+    private final int maxCharge;
+
+    /**
+     * @param ppmTolerance tolerance in ppm between the expected and the observed isotope mz
+     * @param maxCharge    highest charge state tried (1 to 3 usually)
+     */
+    public Deisotoper(double ppmTolerance, int maxCharge) {
+        if (maxCharge < 1 || maxCharge > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid maximum charge " + maxCharge);
+        }
+        this.ppmTolerance = ppmTolerance;
+        this.maxCharge = maxCharge;
+    }
+
+    public Deisotoper(double ppmTolerance) {
+        this(ppmTolerance, 3);
+    }
+
+    /**
+     * @param peaks peaks sorted by mz
+     * @return the monoisotopic peaks with their charge (0 for the peaks without isotopes)
+     */
+    public PeakList deisotope(PeakList peaks) {
+        int n = peaks.size();
+        if (n < 2) {
+            return peaks;
+        }
+        double[] mz = peaks.mzColumn();
+        double[] intensity = peaks.intensityColumn();
+        boolean[] isotope = new boolean[n];
+        int[] pointer = new int[maxCharge + 1];
+
+        double[] monoMz = new double[n];
+        double[] monoIntensity = new double[n];
+        byte[] monoCharge = new byte[n];
+        int size = 0;
+
+        for (int i = 0; i < n; i++) {
+            if (isotope[i]) {
+                continue;
+            }
+            // Higher charges first: the M+2 of a doubly charged envelope is where the M+1 of a singly charged one is
+            int bestCharge = 0;
+            int bestLength = 0;
+            for (int z = maxCharge; z >= 1; z--) {
+                double spacing = C13_SPACING / z;
+                double target = mz[i] + spacing;
+                double tolerance = target * ppmTolerance / 1000000;
+                int p = Math.max(pointer[z], i + 1);
+                while (p < n && mz[p] < target - tolerance) {
+                    p++;
+                }
+                pointer[z] = p;
+                int length = walkEnvelope(mz, intensity, isotope, i, p, z, false);
+                if (length > bestLength) {
+                    bestLength = length;
+                    bestCharge = z;
+                }
+            }
+            if (bestCharge > 0) {
+                walkEnvelope(mz, intensity, isotope, i, pointer[bestCharge], bestCharge, true);
+            }
+            monoMz[size] = mz[i];
+            monoIntensity[size] = intensity[i];
+            monoCharge[size] = (byte) bestCharge;
+            size++;
+        }
+        return PeakList.ofSortedColumns(Arrays.copyOf(monoMz, size), Arrays.copyOf(monoIntensity, size),
+                Arrays.copyOf(monoCharge, size));
+    }
+
+    /**
+     * Follows the envelope that starts at the monoisotopic peak
+     *
+     * @param first index of the first peak within the tolerance of the first isotope, or after it
+     * @param mark  true to mark the isotopes found
+     * @return number of isotopes after the monoisotopic peak
+     */
+    private int walkEnvelope(double[] mz, double[] intensity, boolean[] isotope, int monoisotopic, int first, int charge,
+                             boolean mark) {
+        double spacing = C13_SPACING / charge;
+        double maxCarbons = Math.floor(mz[monoisotopic] * charge / CARBON_MASS);
+        int length = 0;
+        int previous = monoisotopic;
+        double target = mz[monoisotopic] + spacing;
+        int from = first;
+        while (length < MAX_ISOTOPES) {
+            double tolerance = target * ppmTolerance / 1000000;
+            int k = length + 1;
+            double maxIntensity = intensity[previous] * INTENSITY_SLACK
+                    * (maxCarbons - k + 1) / k * C13_ABUNDANCE / (1 - C13_ABUNDANCE);
+            int best = -1;
+            for (int j = from; j < mz.length && mz[j] <= target + tolerance; j++) {
+                if (!isotope[j] && Math.abs(mz[j] - target) <= tolerance && intensity[j] <= maxIntensity
+                        && (best < 0 || Math.abs(mz[j] - target) < Math.abs(mz[best] - target))) {
+                    best = j;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            if (mark) {
+                isotope[best] = true;
+            }
+            length++;
+            previous = best;
+            target = mz[best] + spacing;
+            from = lowerBound(mz, best + 1, target - target * ppmTolerance / 1000000);
+        }
+        return length;
+    }
+
+    /**
+     * @return index of the first peak of mz[from ..] with mz >= value, or mz.length
+     */
+    private static int lowerBound(double[] mz, int from, double value) {
+        int low = from;
+        int high = mz.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (mz[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Deisotopes the grouped signals of every annotation, in parallel across annotations
+     */
+    public void deisotope(Collection<Annotation> annotations) {
+        annotations.parallelStream().forEach(annotation -> annotation.deisotope(this));
+    }
+}
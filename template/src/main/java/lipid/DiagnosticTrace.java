@@ -0,0 +1,108 @@
+package lipid;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Diagnostic tracing of the adduct detection and of the rule consequences on top of SLF4J at TRACE level.
+ * <p>
+ * Callers check {@link #isTracing(Logger, double)} once per event (one adduct detection call or one rule firing) and
+ * only build trace messages when it returns true, so with TRACE disabled (the default) the cost is one level check: no
+ * strings, no formatting and no I/O. When TRACE is enabled the traced events can be narrowed to one mz
+ * ({@link #focus(double, double)}), sampled ({@link #sample(int)}) and bounded ({@link #limit(long)}). The same
+ * settings can be given as the system properties lipid.trace.mz, lipid.trace.mzTolerance, lipid.trace.sample and
+ * lipid.trace.limit.
+ * <p>
+ * Sampling and the limit count events, not features: a feature detected twice or scored by several rules is several
+ * events. Events outside the focus are not counted.
+ */
+public final class DiagnosticTrace {
+
+    /**
+     * Logger of the rule consequences of lipids.drl
+     */
+    public static final Logger RULES = LoggerFactory.getLogger("lipid.rules");
+
+    private static volatile double focusMz = Double.parseDouble(System.getProperty("lipid.trace.mz", "NaN"));
+    private static volatile double focusTolerance = Double.parseDouble(System.getProperty("lipid.trace.mzTolerance", "0.01"));
+    private static volatile int sampleRate = Integer.getInteger("lipid.trace.sample", 1);
+    private static final AtomicLong remaining = new AtomicLong(Long.getLong("lipid.trace.limit", Long.MAX_VALUE));
+    private static final AtomicLong seen = new AtomicLong();
+
+    private DiagnosticTrace() {
+    }
+
+    /**
+     * Decides whether the event is traced. Every call within the focus counts for the sampling, and every call that
+     * returns true consumes one event of the limit.
+     *
+     * @param log logger that writes the trace
+     * @param mz  mz of the feature of the event
+     * @return true if the trace messages of the event should be written
+     */
+    public static boolean isTracing(Logger log, double mz) {
+        if (!log.isTraceEnabled()) {
+            return false;
+        }
+        double focus = focusMz;
+        if (!Double.isNaN(focus) && Math.abs(mz - focus) > focusTolerance) {
+            return false;
+        }
+        int rate = sampleRate;
+        if (rate > 1 && seen.getAndIncrement() % rate != 0) {
+            return false;
+        }
+        return remaining.get() > 0 && remaining.getAndDecrement() > 0;
+    }
+
+    /**
+     * Only the events of the features within mzTolerance of mz are traced
+     */
+    public static void focus(double mz, double mzTolerance) {
+        focusTolerance = mzTolerance;
+        focusMz = mz;
+    }
+
+    /**
+     * Only one of every rate events is traced
+     */
+    public static void sample(int rate) {
+        if (rate < 1) {
+            throw new IllegalArgumentException("The sample rate must be positive: " + rate);
+        }
+        sampleRate = rate;
+    }
+
+    /**
+     * At most events events are traced from now on
+     */
+    public static void limit(long events) {
+        remaining.set(events);
+    }
+
+    /**
+     * Traces every event again
+     */
+    public static void reset() {
+        focusMz = Double.NaN;
+        sampleRate = 1;
+        seen.set(0);
+        remaining.set(Long.MAX_VALUE);
+    }
+
+    /**
+     * Trace of a rule consequence. The annotations are only converted to String when the trace is written.
+     *
+     * @param rule  name of the rule
+     * @param delta score added to both annotations
+     * @param a1    first annotation
+     * @param a2    second annotation
+     */
+    public static void ruleFired(String rule, int delta, Annotation a1, Annotation a2) {
+        if (isTracing(RULES, a1.getMz())) {
+            RULES.trace("{}: scored {} for annotations {} and {}", rule, delta, a1, a2);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package lipid;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Scores the annotations of a sample by their residual to the {@link EcnRetentionTimeModel} of their class, in O(N)
+ * instead of comparing every pair of annotations as lipids.drl.
+ * <p>
+ * Each annotation of a fitted class receives one piece of evidence worth {@code 1 - 2·min(1, |residual| / (k·scale))}:
+ * +1 on the model, 0 at half the cutoff and -1 beyond k robust standard deviations. It is applied as
+ * {@link #RESOLUTION} rule applications, so the normalized score stays between -1 and 1 with a resolution of
+ * 1 / RESOLUTION. Annotations of classes with less than {@link EcnRetentionTimeModel#MIN_CLASS_SIZE} annotations are
+ * not scored.
+ */
+public class EcnElutionOrderScoring implements ElutionOrderScoring {
+
+    public static final int RESOLUTION = 100;
+
+    private final double cutoff;
+    private final double minScale;
+
+    /**
+     * @param cutoff   residuals beyond cutoff robust standard deviations get the score -1
+     * @param minScale lowest residual scale in minutes, see {@link EcnRetentionTimeModel}
+     */
+    public EcnElutionOrderScoring(double cutoff, double minScale) {
+        this.cutoff = cutoff;
+        this.minScale = minScale;
+    }
+
+    public EcnElutionOrderScoring() {
+        this(3, 0.05);
+    }
+
+    @Override
+    public void score(Collection<Annotation> annotations) {
+        EcnRetentionTimeModel model = new EcnRetentionTimeModel(minScale);
+        model.addAll(annotations);
+        score(model);
+    }
+
+    /**
+     * Fits the model, for instance one kept up to date with a stream of annotations, and scores its annotations
+     */
+    public void score(EcnRetentionTimeModel model) {
+        model.fit();
+        for (List<Annotation> members : model.getClasses()) {
+            for (Annotation annotation : members) {
+                double expected = model.predict(annotation.getLipid());
+                if (Double.isNaN(expected)) {
+                    break;
+                }
+                double distance = Math.abs(annotation.getRtMin() - expected) / (cutoff * model.getScale(annotation.getLipid()));
+                double evidence = 1 - 2 * Math.min(1, distance);
+                annotation.addScores((int) Math.round(evidence * RESOLUTION), RESOLUTION);
+            }
+        }
+    }
+}
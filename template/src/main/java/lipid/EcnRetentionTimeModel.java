@@ -0,0 +1,299 @@
+package lipid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Equivalent carbon number model of the retention time: within each lipid class the RT grows linearly with the
+ * carbons and decreases linearly with the double bonds, {@code rt = a + b·carbons + c·doubleBonds}.
+ * <p>
+ * The least squares sums of every class are updated in O(1) when an annotation is added or removed, so
+ * {@link #predict(Lipid)} follows a stream of annotations. {@link #fit()} then refines each class with a few Huber
+ * reweighting passes (robust to misannotations) and estimates the residual scale with the median absolute deviation,
+ * all in O(N). When the carbons or the double bonds do not vary within a class, that term is left out of its model.
+ * Not thread safe.
+ */
+public class EcnRetentionTimeModel {
+
+    /**
+     * Fewer annotations of a class are not enough to fit and score it
+     */
+    public static final int MIN_CLASS_SIZE = 4;
+
+    private static final int ROBUST_ITERATIONS = 3;
+    private static final double HUBER_K = 1.345;
+    private static final double MAD_TO_SIGMA = 1.4826;
+
+    private final double minScale;
+    private final Map<String, ClassFit> classes = new HashMap<>();
+
+    /**
+     * @param minScale lowest residual scale (minutes), so a class fitted almost exactly does not penalize tiny
+     *                 residuals
+     */
+    public EcnRetentionTimeModel(double minScale) {
+        this.minScale = minScale;
+    }
+
+    public EcnRetentionTimeModel() {
+        this(0.05);
+    }
+
+    public void add(Annotation annotation) {
+        classes.computeIfAbsent(annotation.getLipid().getLipidType(), type -> new ClassFit()).add(annotation);
+    }
+
+    public void addAll(Collection<Annotation> annotations) {
+        for (Annotation annotation : annotations) {
+            add(annotation);
+        }
+    }
+
+    public boolean remove(Annotation annotation) {
+        ClassFit fit = classes.get(annotation.getLipid().getLipidType());
+        return fit != null && fit.remove(annotation);
+    }
+
+    /**
+     * Refines the model of every class with enough annotations with robust reweighting
+     */
+    public void fit() {
+        for (ClassFit fit : classes.values()) {
+            fit.robustFit(minScale);
+        }
+    }
+
+    /**
+     * @return the RT expected for the lipid by the last fit, or by the least squares sums if its class was not
+     * fitted since it changed; NaN if its class cannot be fitted
+     */
+    public double predict(Lipid lipid) {
+        ClassFit fit = classes.get(lipid.getLipidType());
+        return fit == null ? Double.NaN : fit.predict(lipid);
+    }
+
+    /**
+     * @return residual RT scale of the class of the lipid estimated by the last fit, NaN if not fitted
+     */
+    public double getScale(Lipid lipid) {
+        ClassFit fit = classes.get(lipid.getLipidType());
+        return fit == null ? Double.NaN : fit.scale;
+    }
+
+    /**
+     * @return annotations of the classes
+     */
+    Collection<List<Annotation>> getClasses() {
+        List<List<Annotation>> members = new ArrayList<>();
+        for (ClassFit fit : classes.values()) {
+            members.add(fit.members);
+        }
+        return members;
+    }
+
+    /**
+     * Weighted least squares of one class, rt on (1, carbons, double bonds)
+     */
+    private static final class ClassFit {
+
+        private final List<Annotation> members = new ArrayList<>();
+        // streaming sums of the unweighted least squares
+        private final double[] sums = new double[9];
+        private double[] coefficients;
+        private double scale = Double.NaN;
+        private boolean fitted;
+
+        void add(Annotation annotation) {
+            members.add(annotation);
+            accumulate(sums, 1, annotation);
+            fitted = false;
+        }
+
+        boolean remove(Annotation annotation) {
+            for (int i = members.size() - 1; i >= 0; i--) {
+                if (members.get(i) == annotation) {
+                    members.set(i, members.get(members.size() - 1));
+                    members.remove(members.size() - 1);
+                    accumulate(sums, -1, annotation);
+                    fitted = false;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static void accumulate(double[] sums, double weight, Annotation annotation) {
+            double c = annotation.getLipid().getCarbonCount();
+            double d = annotation.getLipid().getDoubleBondsCount();
+            double y = annotation.getRtMin();
+            sums[0] += weight;
+            sums[1] += weight * c;
+            sums[2] += weight * d;
+            sums[3] += weight * c * c;
+            sums[4] += weight * c * d;
+            sums[5] += weight * d * d;
+            sums[6] += weight * y;
+            sums[7] += weight * c * y;
+            sums[8] += weight * d * y;
+        }
+
+        double predict(Lipid lipid) {
+            double[] model = fitted ? coefficients : solve(sums, members.size());
+            if (model == null) {
+                return Double.NaN;
+            }
+            return model[0] + model[1] * lipid.getCarbonCount() + model[2] * lipid.getDoubleBondsCount();
+        }
+
+        void robustFit(double minScale) {
+            fitted = true;
+            coefficients = solve(sums, members.size());
+            scale = Double.NaN;
+            if (coefficients == null) {
+                return;
+            }
+            int n = members.size();
+            double[] residuals = new double[n];
+            double[] weighted = new double[9];
+            for (int iteration = 0; ; iteration++) {
+                for (int i = 0; i < n; i++) {
+                    Annotation annotation = members.get(i);
+                    residuals[i] = Math.abs(annotation.getRtMin() - predict(annotation.getLipid()));
+                }
+                scale = Math.max(MAD_TO_SIGMA * median(residuals.clone()), minScale);
+                if (iteration == ROBUST_ITERATIONS) {
+                    return;
+                }
+                Arrays.fill(weighted, 0);
+                for (int i = 0; i < n; i++) {
+                    double weight = residuals[i] <= HUBER_K * scale ? 1 : HUBER_K * scale / residuals[i];
+                    accumulate(weighted, weight, members.get(i));
+                }
+                double[] refined = solve(weighted, n);
+                if (refined == null) {
+                    return;
+                }
+                coefficients = refined;
+            }
+        }
+
+        /**
+         * Solves the normal equations, leaving out the terms that do not vary
+         *
+         * @return intercept, carbons and double bonds coefficients, or null if there are too few annotations
+         */
+        private static double[] solve(double[] s, int size) {
+            if (size < MIN_CLASS_SIZE || s[0] <= 0) {
+                return null;
+            }
+            double varianceC = s[3] / s[0] - (s[1] / s[0]) * (s[1] / s[0]);
+            double varianceD = s[5] / s[0] - (s[2] / s[0]) * (s[2] / s[0]);
+            boolean useC = varianceC > 1e-9;
+            boolean useD = varianceD > 1e-9;
+            if (useC && useD) {
+                double[][] a = {{s[0], s[1], s[2]}, {s[1], s[3], s[4]}, {s[2], s[4], s[5]}};
+                double[] b = {s[6], s[7], s[8]};
+                double[] x = gauss(a, b);
+                if (x != null) {
+                    return x;
+                }
+                // carbons and double bonds vary together: keep the carbons
+                useD = false;
+            }
+            if (useC) {
+                double slope = (s[7] - s[1] * s[6] / s[0]) / (s[3] - s[1] * s[1] / s[0]);
+                return new double[]{(s[6] - slope * s[1]) / s[0], slope, 0};
+            }
+            if (useD) {
+                double slope = (s[8] - s[2] * s[6] / s[0]) / (s[5] - s[2] * s[2] / s[0]);
+                return new double[]{(s[6] - slope * s[2]) / s[0], 0, slope};
+            }
+            return new double[]{s[6] / s[0], 0, 0};
+        }
+
+        private static double[] gauss(double[][] a, double[] b) {
+            int n = b.length;
+            for (int column = 0; column < n; column++) {
+                int pivot = column;
+                for (int row = column + 1; row < n; row++) {
+                    if (Math.abs(a[row][column]) > Math.abs(a[pivot][column])) {
+                        pivot = row;
+                    }
+                }
+                if (Math.abs(a[pivot][column]) < 1e-9 * Math.max(1, Math.abs(a[0][0]))) {
+                    return null;
+                }
+                double[] rowSwap = a[column];
+                a[column] = a[pivot];
+                a[pivot] = rowSwap;
+                double valueSwap = b[column];
+                b[column] = b[pivot];
+                b[pivot] = valueSwap;
+                for (int row = column + 1; row < n; row++) {
+                    double factor = a[row][column] / a[column][column];
+                    for (int k = column; k < n; k++) {
+                        a[row][k] -= factor * a[column][k];
+                    }
+                    b[row] -= factor * b[column];
+                }
+            }
+            double[] x = new double[n];
+            for (int row = n - 1; row >= 0; row--) {
+                double sum = b[row];
+                for (int k = row + 1; k < n; k++) {
+                    sum -= a[row][k] * x[k];
+                }
+                x[row] = sum / a[row][row];
+            }
+            return x;
+        }
+
+        /**
+         * Median by quickselect, expected O(n). Reorders the values.
+         */
+        private static double median(double[] values) {
+            int n = values.length;
+            double upper = select(values, n / 2);
+            if (n % 2 == 1) {
+                return upper;
+            }
+            // the lower middle is the largest value left of n / 2 after the selection
+            double lower = values[0];
+            for (int i = 1; i < n / 2; i++) {
+                lower = Math.max(lower, values[i]);
+            }
+            return (lower + upper) / 2;
+        }
+
+        private static double select(double[] values, int k) {
+            int left = 0;
+            int right = values.length - 1;
+            while (left < right) {
+                double pivot = values[(left + right) >>> 1];
+                int i = left;
+                int j = right;
+                while (i <= j) {
+                    while (values[i] < pivot) i++;
+                    while (values[j] > pivot) j--;
+                    if (i <= j) {
+                        double swap = values[i];
+                        values[i++] = values[j];
+                        values[j--] = swap;
+                    }
+                }
+                if (k <= j) {
+                    right = j;
+                } else if (k >= i) {
+                    left = i;
+                } else {
+                    return values[k];
+                }
+            }
+            return values[k];
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package lipid;
+
+import java.util.Collection;
+
+/**
+ * Scores the annotations of a sample with the elution order evidence of lipids.drl: every pair of annotations that
+ * only differ in carbons, in double bonds or in class adds +1 to both when their RT follows the expected order and
+ * -1 when it follows the opposite one.
+ */
+public interface ElutionOrderScoring {
+
+    /**
+     * Adds the evidence of every pair of the annotations to their score and totalScoresApplied
+     */
+    void score(Collection<Annotation> annotations);
+
+    /**
+     * @param name "rules" for the Drools rule unit, "native" for the pair counting scorer or "ecn" for the residuals
+     *             to the equivalent carbon number model
+     */
+    static ElutionOrderScoring forName(String name) {
+        switch (name) {
+            case "rules":
+                return new RuleUnitElutionOrderScoring();
+            case "native":
+                return new FenwickElutionOrderScoring();
+            case "ecn":
+                return new EcnElutionOrderScoring();
+            default:
+                throw new IllegalArgumentException("Unknown elution order scoring " + name);
+        }
+    }
+
+    /**
+     * @return the scoring of the system property lipid.scoring, the rule unit by default
+     */
+    static ElutionOrderScoring fromSystemProperty() {
+        return forName(System.getProperty("lipid.scoring", "rules"));
+    }
+}
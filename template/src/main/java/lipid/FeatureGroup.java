@@ -0,0 +1,51 @@
+package lipid;
+
+/**
+ * Co-eluting peaks of one feature, built by {@link FeatureGrouper}. The mz, RT and intensity of the feature are the
+ * ones of its most abundant peak.
+ */
+public class FeatureGroup {
+
+    private final double mz;
+    private final double rtMin;
+    private final double intensity;
+    private final PeakList signals;
+
+    public FeatureGroup(double mz, double rtMin, double intensity, PeakList signals) {
+        this.mz = mz;
+        this.rtMin = rtMin;
+        this.intensity = intensity;
+        this.signals = signals;
+    }
+
+    public double getMz() {
+        return mz;
+    }
+
+    public double getRtMin() {
+        return rtMin;
+    }
+
+    public double getIntensity() {
+        return intensity;
+    }
+
+    /**
+     * @return the grouped signals sorted by mz
+     */
+    public PeakList getSignals() {
+        return signals;
+    }
+
+    /**
+     * @return an annotation of the feature as the lipid with the grouped signals of the feature
+     */
+    public Annotation toAnnotation(Lipid lipid, IonizationMode ionizationMode) {
+        return new Annotation(lipid, mz, intensity, rtMin, ionizationMode, signals);
+    }
+
+    @Override
+    public String toString() {
+        return "FeatureGroup(mz=" + mz + ", RT=" + rtMin + ", signals=" + signals.size() + ")";
+    }
+}
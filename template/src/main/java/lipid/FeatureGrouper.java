@@ -0,0 +1,218 @@
+package lipid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Groups the features of a whole run into co-eluting groups with a sweep line over RT, the adduct signals of one
+ * compound.
+ * <p>
+ * The input must be feature-level: one entry per chromatographic feature (an ion integrated over its elution, as in a
+ * {@link io.FeatureTable}), not the centroids of every scan. The sweep has no mz criterion because the signals of a
+ * group are expected at different mz; instead, two entries of a group within mzTolerance of each other are the same
+ * ion given twice, and the grouping fails with an IllegalArgumentException.
+ * <p>
+ * The peaks are sorted by RT once. The sweep adds each peak to the current group while it elutes within rtTolerance
+ * of the previous peak and the group is not wider than maxRtWidth; otherwise a new group starts. A gap larger than
+ * rtTolerance always starts a group, so the run is cut at such gaps into slices that are swept in parallel with the
+ * same result as a sequential sweep.
+ */
+public class FeatureGrouper {
+
+    // RT is sorted as a fixed point number packed with the peak index in one long
+    private static final int INDEX_BITS = 26;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    private static final double RT_RESOLUTION = 1e-6;
+    static final int SLICE_SIZE = 1 << 16;
+    public static final double DEFAULT_MZ_TOLERANCE = 0.005;
+
+    private final double rtTolerance;
+    private final double maxRtWidth;
+    private final double mzTolerance;
+    private final ForkJoinPool pool;
+    private final int sliceSize;
+
+    /**
+     * @param rtTolerance maximum RT difference between consecutive peaks of a group
+     * @param maxRtWidth  maximum RT difference between the first and the last peak of a group
+     */
+    public FeatureGrouper(double rtTolerance, double maxRtWidth) {
+        this(rtTolerance, maxRtWidth, ForkJoinPool.commonPool());
+    }
+
+    public FeatureGrouper(double rtTolerance, double maxRtWidth, ForkJoinPool pool) {
+        this(rtTolerance, maxRtWidth, DEFAULT_MZ_TOLERANCE, pool);
+    }
+
+    /**
+     * @param mzTolerance minimum mz difference between two features of a group, {@link #DEFAULT_MZ_TOLERANCE} by
+     *                    default
+     */
+    public FeatureGrouper(double rtTolerance, double maxRtWidth, double mzTolerance, ForkJoinPool pool) {
+        this(rtTolerance, maxRtWidth, mzTolerance, pool, SLICE_SIZE);
+    }
+
+    /**
+     * @param sliceSize peaks of a slice before it is cut at the next gap, {@link #SLICE_SIZE} by default
+     */
+    FeatureGrouper(double rtTolerance, double maxRtWidth, double mzTolerance, ForkJoinPool pool, int sliceSize) {
+        if (rtTolerance < 0 || maxRtWidth < rtTolerance) {
+            throw new IllegalArgumentException("Invalid RT window: tolerance " + rtTolerance + ", width " + maxRtWidth);
+        }
+        if (!(mzTolerance >= 0)) {
+            throw new IllegalArgumentException("Invalid mz tolerance " + mzTolerance);
+        }
+        if (sliceSize < 1) {
+            throw new IllegalArgumentException("Invalid slice size " + sliceSize);
+        }
+        this.rtTolerance = rtTolerance;
+        this.maxRtWidth = maxRtWidth;
+        this.mzTolerance = mzTolerance;
+        this.pool = pool;
+        this.sliceSize = sliceSize;
+    }
+
+    /**
+     * @param mz        mz of the features
+     * @param rt        RT of the features (not negative)
+     * @param intensity intensity of the features
+     * @return the groups in RT order, ready to build {@link Annotation}s
+     * @throws IllegalArgumentException if two features of a group are within the mz tolerance, as with scan-level
+     *                                  input
+     */
+    public List<FeatureGroup> group(double[] mz, double[] rt, double[] intensity) {
+        int n = mz.length;
+        if (rt.length != n || intensity.length != n) {
+            throw new IllegalArgumentException("mz, rt and intensity must have the same length");
+        }
+        if (n > INDEX_MASK + 1) {
+            throw new IllegalArgumentException("At most " + (INDEX_MASK + 1) + " peaks can be grouped at once, got " + n);
+        }
+
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            if (!(rt[i] >= 0)) {
+                throw new IllegalArgumentException("Invalid RT " + rt[i] + " of peak " + i);
+            }
+            keys[i] = (Math.round(rt[i] / RT_RESOLUTION) << INDEX_BITS) | i;
+        }
+        Arrays.parallelSort(keys);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) (keys[i] & INDEX_MASK);
+        }
+
+        List<Integer> boundaries = sliceBoundaries(rt, order);
+        return pool.invoke(new SweepTask(mz, rt, intensity, order, boundaries, 0, boundaries.size() - 1));
+    }
+
+    /**
+     * Slice boundaries: every sliceSize peaks, moved forward to the next gap larger than the tolerance. Once a search
+     * reaches the end without a gap the rest of the run is one slice, so every peak is scanned at most once.
+     *
+     * @return the first sorted peak of every slice followed by the number of peaks
+     */
+    List<Integer> sliceBoundaries(double[] rt, int[] order) {
+        int n = order.length;
+        List<Integer> boundaries = new ArrayList<>();
+        boundaries.add(0);
+        for (long cut = sliceSize; cut < n; cut += sliceSize) {
+            int start = (int) Math.max(cut, boundaries.get(boundaries.size() - 1) + 1);
+            while (start < n && rt[order[start]] - rt[order[start - 1]] <= rtTolerance) {
+                start++;
+            }
+            if (start >= n) {
+                break;
+            }
+            boundaries.add(start);
+        }
+        boundaries.add(n);
+        return boundaries;
+    }
+
+    /**
+     * Sequential sweep of the sorted peaks [from, to)
+     */
+    private List<FeatureGroup> sweep(double[] mz, double[] rt, double[] intensity, int[] order, int from, int to) {
+        List<FeatureGroup> groups = new ArrayList<>();
+        int start = from;
+        for (int i = from + 1; i <= to; i++) {
+            if (i == to
+                    || rt[order[i]] - rt[order[i - 1]] > rtTolerance
+                    || rt[order[i]] - rt[order[start]] > maxRtWidth) {
+                groups.add(toGroup(mz, rt, intensity, order, start, i));
+                start = i;
+            }
+        }
+        return groups;
+    }
+
+    private FeatureGroup toGroup(double[] mz, double[] rt, double[] intensity, int[] order, int from, int to) {
+        int size = to - from;
+        double[] groupMz = new double[size];
+        double[] groupIntensity = new double[size];
+        int apex = order[from];
+        for (int i = 0; i < size; i++) {
+            int peak = order[from + i];
+            groupMz[i] = mz[peak];
+            groupIntensity[i] = intensity[peak];
+            if (intensity[peak] > intensity[apex]) {
+                apex = peak;
+            }
+        }
+        PeakList signals = PeakList.of(groupMz, groupIntensity);
+        boolean sameIon = signals.size() < size;
+        for (int i = 1; i < signals.size() && !sameIon; i++) {
+            sameIon = signals.getMz(i) - signals.getMz(i - 1) <= mzTolerance;
+        }
+        if (sameIon) {
+            throw new IllegalArgumentException("Two features of the group at RT " + rt[apex] + " are within "
+                    + mzTolerance + " mz: the input must have one entry per feature, not the peaks of every scan");
+        }
+        return new FeatureGroup(mz[apex], rt[apex], intensity[apex], signals);
+    }
+
+    // Never serialized: the task only lives during one invocation of the pool
+    @SuppressWarnings("serial")
+    private class SweepTask extends RecursiveTask<List<FeatureGroup>> {
+
+        private final double[] mz;
+        private final double[] rt;
+        private final double[] intensity;
+        private final int[] order;
+        private final List<Integer> boundaries;
+        private final int firstSlice;
+        private final int lastSlice;
+
+        SweepTask(double[] mz, double[] rt, double[] intensity, int[] order, List<Integer> boundaries,
+                  int firstSlice, int lastSlice) {
+            this.mz = mz;
+            this.rt = rt;
+            this.intensity = intensity;
+            this.order = order;
+            this.boundaries = boundaries;
+            this.firstSlice = firstSlice;
+            this.lastSlice = lastSlice;
+        }
+
+        @Override
+        protected List<FeatureGroup> compute() {
+            if (lastSlice - firstSlice <= 1) {
+                int from = boundaries.get(firstSlice);
+                int to = boundaries.get(lastSlice);
+                return from < to ? sweep(mz, rt, intensity, order, from, to) : new ArrayList<>();
+            }
+            int middle = (firstSlice + lastSlice) >>> 1;
+            SweepTask left = new SweepTask(mz, rt, intensity, order, boundaries, firstSlice, middle);
+            SweepTask right = new SweepTask(mz, rt, intensity, order, boundaries, middle, lastSlice);
+            left.fork();
+            List<FeatureGroup> groups = right.compute();
+            List<FeatureGroup> result = left.join();
+            result.addAll(groups);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package lipid;
+
+import java.util.List;
+
+/**
+ * Best candidate annotations of one feature (mz, RT), best first
+ */
+public class FeatureRanking {
+
+    private final double mz;
+    private final double rtMin;
+    private final List<Annotation> best;
+
+    public FeatureRanking(double mz, double rtMin, List<Annotation> best) {
+        this.mz = mz;
+        this.rtMin = rtMin;
+        this.best = best;
+    }
+
+    public double getMz() {
+        return mz;
+    }
+
+    public double getRtMin() {
+        return rtMin;
+    }
+
+    public List<Annotation> getBest() {
+        return best;
+    }
+
+    @Override
+    public String toString() {
+        return "FeatureRanking{" +
+                "mz=" + mz +
+                ", rtMin=" + rtMin +
+                ", best=" + best +
+                '}';
+    }
+}
@@ -0,0 +1,43 @@
+package lipid;
+
+import java.util.List;
+
+/**
+ * Result of {@link BatchAnnotator} for one feature: the adduct detected and, if a candidate search was configured,
+ * the candidate lipids.
+ */
+public class FeatureResult {
+
+    private final Annotation annotation;
+    private final String adduct;
+    private final List<LipidCandidate> candidates;
+
+    FeatureResult(Annotation annotation, String adduct, List<LipidCandidate> candidates) {
+        this.annotation = annotation;
+        this.adduct = adduct;
+        this.candidates = candidates;
+    }
+
+    public Annotation getAnnotation() {
+        return annotation;
+    }
+
+    /**
+     * @return the adduct detected, or one of the not detected values of {@link adduct.AdductDetectionStrategy}
+     */
+    public String getAdduct() {
+        return adduct;
+    }
+
+    /**
+     * @return the candidates of the feature, empty without candidate search
+     */
+    public List<LipidCandidate> getCandidates() {
+        return candidates;
+    }
+
+    @Override
+    public String toString() {
+        return "FeatureResult(mz=" + annotation.getMz() + ", adduct=" + adduct + ", candidates=" + candidates.size() + ")";
+    }
+}
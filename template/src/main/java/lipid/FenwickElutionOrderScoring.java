@@ -0,0 +1,196 @@
+package lipid;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Pair counting implementation of the rules of lipids.drl, with the same score and totalScoresApplied per annotation
+ * as the rule unit in O(N log N) instead of matching every pair.
+ * <p>
+ * Each rule joins the annotations of one bucket (same class and double bonds, same class and carbons, or same
+ * carbons and double bonds) and compares one ordering field (carbons, double bonds or class rank) with the RT. For
+ * an annotation, the pairs it is concordant and discordant with are counted with a Fenwick tree over the RT ranks of
+ * its bucket: first adding the annotations with a lower ordering field, then, from the other end, those with a
+ * higher one. Pairs with the same ordering field or the same RT do not fire any rule.
+ */
+public class FenwickElutionOrderScoring implements ElutionOrderScoring {
+
+    @Override
+    public void score(Collection<Annotation> annotations) {
+        Annotation[] facts = annotations.toArray(new Annotation[0]);
+        int[] score = new int[facts.length];
+        int[] applied = new int[facts.length];
+        // More carbons elute later
+        countPairs(facts, Annotation::getClassDoubleBondsKey, a -> a.getLipid().getCarbonCount(), 1, score, applied);
+        // More double bonds elute earlier
+        countPairs(facts, Annotation::getClassCarbonsKey, a -> a.getLipid().getDoubleBondsCount(), -1, score, applied);
+        // PG < PE < PI < PA < PS < PC
+        countPairs(facts, Annotation::getCarbonsDoubleBondsKey, Annotation::getLipidTypeRank, 1, score, applied);
+        for (int i = 0; i < facts.length; i++) {
+            if (applied[i] > 0) {
+                facts[i].addScores(score[i], applied[i]);
+            }
+        }
+    }
+
+    /**
+     * @param bucket    join key of the rule
+     * @param order     non negative ordering field of the rule
+     * @param direction 1 if a higher ordering field should elute later, -1 if earlier
+     */
+    private static void countPairs(Annotation[] facts, ToLongFunction<Annotation> bucket,
+                                   ToIntFunction<Annotation> order, int direction, int[] score, int[] applied) {
+        int n = facts.length;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = bucket.applyAsLong(facts[i]);
+        }
+        long[] distinct = keys.clone();
+        Arrays.sort(distinct);
+        // bucket id in the high half, index in the low half: sorting groups the buckets
+        long[] members = new long[n];
+        for (int i = 0; i < n; i++) {
+            members[i] = (long) Arrays.binarySearch(distinct, keys[i]) << 32 | i;
+        }
+        Arrays.sort(members);
+        Bucket group = new Bucket();
+        for (int start = 0; start < n; ) {
+            int end = start + 1;
+            while (end < n && members[end] >>> 32 == members[start] >>> 32) {
+                end++;
+            }
+            if (end - start > 1) {
+                group.load(facts, members, start, end, order);
+                group.count(direction, score, applied);
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Annotations of one bucket sorted by the ordering field, reusing the arrays between buckets
+     */
+    private static final class Bucket {
+
+        private int size;
+        private int[] index = new int[0];
+        private int[] order = new int[0];
+        private int[] rtRank = new int[0];
+        private long[] sorted = new long[0];
+        private double[] rts = new double[0];
+        private int[] tree = new int[1];
+        private int[] concordant = new int[0];
+        private int[] discordant = new int[0];
+
+        void load(Annotation[] facts, long[] members, int from, int to, ToIntFunction<Annotation> orderField) {
+            size = to - from;
+            if (index.length < size) {
+                int capacity = Math.max(size, index.length * 2);
+                index = new int[capacity];
+                order = new int[capacity];
+                rtRank = new int[capacity];
+                sorted = new long[capacity];
+                rts = new double[capacity];
+                tree = new int[capacity + 1];
+                concordant = new int[capacity];
+                discordant = new int[capacity];
+            }
+            for (int i = 0; i < size; i++) {
+                int fact = (int) members[from + i];
+                sorted[i] = (long) orderField.applyAsInt(facts[fact]) << 32 | fact;
+            }
+            Arrays.sort(sorted, 0, size);
+            for (int i = 0; i < size; i++) {
+                index[i] = (int) sorted[i];
+                order[i] = (int) (sorted[i] >>> 32);
+                rts[i] = facts[index[i]].getRtMin();
+            }
+            double[] distinctRts = Arrays.copyOf(rts, size);
+            Arrays.sort(distinctRts);
+            for (int i = 0; i < size; i++) {
+                // Equal RTs share the rank of the first one, so they are neither lower nor higher
+                rtRank[i] = firstIndexOf(distinctRts, rts[i]);
+            }
+        }
+
+        void count(int direction, int[] score, int[] applied) {
+            Arrays.fill(concordant, 0, size, 0);
+            Arrays.fill(discordant, 0, size, 0);
+            // Lower ordering field: concordant if the RT is lower
+            Arrays.fill(tree, 0, size + 1, 0);
+            int added = 0;
+            for (int start = 0; start < size; ) {
+                int end = start + 1;
+                while (end < size && order[end] == order[start]) {
+                    end++;
+                }
+                for (int i = start; i < end; i++) {
+                    int lower = prefix(rtRank[i]);
+                    concordant[i] += lower;
+                    discordant[i] += added - lower - (prefix(rtRank[i] + 1) - lower);
+                }
+                for (int i = start; i < end; i++) {
+                    add(rtRank[i]);
+                }
+                added += end - start;
+                start = end;
+            }
+            // Higher ordering field: concordant if the RT is higher
+            Arrays.fill(tree, 0, size + 1, 0);
+            added = 0;
+            for (int end = size; end > 0; ) {
+                int start = end - 1;
+                while (start > 0 && order[start - 1] == order[end - 1]) {
+                    start--;
+                }
+                for (int i = start; i < end; i++) {
+                    int lower = prefix(rtRank[i]);
+                    discordant[i] += lower;
+                    concordant[i] += added - lower - (prefix(rtRank[i] + 1) - lower);
+                }
+                for (int i = start; i < end; i++) {
+                    add(rtRank[i]);
+                }
+                added += end - start;
+                end = start;
+            }
+            for (int i = 0; i < size; i++) {
+                score[index[i]] += direction * (concordant[i] - discordant[i]);
+                applied[index[i]] += concordant[i] + discordant[i];
+            }
+        }
+
+        /**
+         * @return number of added RT ranks lower than rank
+         */
+        private int prefix(int rank) {
+            int sum = 0;
+            for (int i = rank; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        private void add(int rank) {
+            for (int i = rank + 1; i <= size; i += i & -i) {
+                tree[i]++;
+            }
+        }
+
+        private static int firstIndexOf(double[] sortedValues, double value) {
+            int low = 0;
+            int high = sortedValues.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sortedValues[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
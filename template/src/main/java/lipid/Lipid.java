@@ -6,10 +6,15 @@ public class Lipid {
     private final int compoundId;
     private final String name;
     private final String formula;
-    private final String lipidType; // !! OPTIONAL TODO -> TRANSFORM INTO AN ENUMERATION
+    private final String lipidType;
+    private final LipidClass lipidClass;
     private final int carbonCount;
     private final int doubleBondsCount;
-    private final int lipidTypeRank;
+    private final long key; // class code | carbons | double bonds, see packKey
+
+    // Bits of each field of the packed keys
+    private static final int FIELD_BITS = 20;
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
 
 
     /**
@@ -24,10 +29,22 @@ public class Lipid {
         this.compoundId = compoundId;
         this.name = name;
         this.formula = formula;
-        this.lipidType = lipidType;
+        this.lipidClass = LipidClass.fromType(lipidType);
+        // Known types share the String of the enumeration
+        this.lipidType = lipidClass == LipidClass.OTHER ? lipidType : lipidClass.getAbbreviation();
         this.carbonCount = carbonCount;
         this.doubleBondsCount = doubleBondCount;
-        this.lipidTypeRank = calculateLipidTypeRank(lipidType);
+        this.key = packKey(LipidClass.codeOf(lipidType), carbonCount, doubleBondCount);
+    }
+
+    /**
+     * Packs the class code, the carbons and the double bonds in one long, 20 bits each from the least significant
+     * bits: double bonds, carbons, class code. A field set to 0 is left out of the key.
+     */
+    static long packKey(int classCode, int carbonCount, int doubleBondsCount) {
+        return ((classCode & FIELD_MASK) << (2 * FIELD_BITS))
+                | ((carbonCount & FIELD_MASK) << FIELD_BITS)
+                | (doubleBondsCount & FIELD_MASK);
     }
 
     public int getCompoundId() {
@@ -54,20 +71,41 @@ public class Lipid {
         return doubleBondsCount;
     }
 
-    private static int calculateLipidTypeRank(String type) {
-        switch (type) {
-            case "PG": return 1;
-            case "PE": return 2;
-            case "PI": return 3;
-            case "PA": return 4;
-            case "PS": return 5;
-            case "PC": return 6;
-            default: return 100;
-        }
+    public LipidClass getLipidClass() {
+        return lipidClass;
     }
 
     public int getLipidTypeRank() {
-        return lipidTypeRank;
+        return lipidClass.getRank();
+    }
+
+    /**
+     * @return key with the class, the carbons and the double bonds. Two lipids have the same key when they have the
+     * same type, carbons and double bonds.
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * @return key of the lipids with the same type and double bonds
+     */
+    public long getClassDoubleBondsKey() {
+        return key & ~(FIELD_MASK << FIELD_BITS);
+    }
+
+    /**
+     * @return key of the lipids with the same type and carbons
+     */
+    public long getClassCarbonsKey() {
+        return key & ~FIELD_MASK;
+    }
+
+    /**
+     * @return key of the lipids with the same carbons and double bonds
+     */
+    public long getCarbonsDoubleBondsKey() {
+        return key & ((1L << (2 * FIELD_BITS)) - 1);
     }
 
     @Override
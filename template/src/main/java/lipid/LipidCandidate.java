@@ -0,0 +1,57 @@
+package lipid;
+
+import adduct.AdductDescriptor;
+
+/**
+ * Lipid of a library that explains an observed mz with an adduct
+ */
+public class LipidCandidate {
+
+    private final Lipid lipid;
+    private final AdductDescriptor adduct;
+    private final double mass;
+    private final double ppmError;
+
+    public LipidCandidate(Lipid lipid, AdductDescriptor adduct, double mass, double ppmError) {
+        this.lipid = lipid;
+        this.adduct = adduct;
+        this.mass = mass;
+        this.ppmError = ppmError;
+    }
+
+    public Lipid getLipid() {
+        return lipid;
+    }
+
+    public AdductDescriptor getAdduct() {
+        return adduct;
+    }
+
+    /**
+     * @return neutral monoisotopic mass of the lipid in the library
+     */
+    public double getMass() {
+        return mass;
+    }
+
+    /**
+     * @return absolute ppm difference between the mass of the lipid and the mass computed from the observed mz
+     */
+    public double getPpmError() {
+        return ppmError;
+    }
+
+    /**
+     * @return an annotation of the observed feature as this candidate, with the adduct already set
+     */
+    public Annotation toAnnotation(double mz, double intensity, double retentionTime, IonizationMode ionizationMode) {
+        Annotation annotation = new Annotation(lipid, mz, intensity, retentionTime, ionizationMode);
+        annotation.setAdduct(adduct.getName());
+        return annotation;
+    }
+
+    @Override
+    public String toString() {
+        return "LipidCandidate(" + lipid.getName() + ", " + adduct + ", ppm=" + ppmError + ")";
+    }
+}
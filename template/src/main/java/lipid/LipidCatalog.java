@@ -0,0 +1,43 @@
+package lipid;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interning catalog of lipids: one shared {@link Lipid} per compound id, so repeated candidates of the same compound
+ * across annotations do not duplicate the lipid. Thread safe.
+ */
+public class LipidCatalog {
+
+    private final ConcurrentMap<Integer, Lipid> lipids = new ConcurrentHashMap<>();
+
+    /**
+     * @return the lipid of the catalog with the compound id of the given lipid, the given lipid if it was not there
+     */
+    public Lipid intern(Lipid lipid) {
+        Lipid previous = lipids.putIfAbsent(lipid.getCompoundId(), lipid);
+        return previous == null ? lipid : previous;
+    }
+
+    /**
+     * @return the lipid of the catalog with the compound id, creating it with the other values if it was not there
+     */
+    public Lipid getOrCreate(int compoundId, String name, String formula, String lipidType, int carbonCount, int doubleBondCount) {
+        Lipid lipid = lipids.get(compoundId);
+        if (lipid != null) {
+            return lipid;
+        }
+        return lipids.computeIfAbsent(compoundId, id -> new Lipid(id, name, formula, lipidType, carbonCount, doubleBondCount));
+    }
+
+    /**
+     * @return the lipid with the compound id or null if it is not in the catalog
+     */
+    public Lipid get(int compoundId) {
+        return lipids.get(compoundId);
+    }
+
+    public int size() {
+        return lipids.size();
+    }
+}
@@ -0,0 +1,84 @@
+package lipid;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lipid classes with their elution rank. The RT order of lipids with the same number of carbons and double bonds is
+ * PG < PE < PI < PA < PS < PC; the other classes have no rank among them (100).
+ */
+public enum LipidClass {
+    PG("PG", 1),
+    PE("PE", 2),
+    PI("PI", 3),
+    PA("PA", 4),
+    PS("PS", 5),
+    PC("PC", 6),
+    TG("TG", 100),
+    DG("DG", 100),
+    MG("MG", 100),
+    SM("SM", 100),
+    CE("CE", 100),
+    CER("Cer", 100),
+    LPC("LPC", 100),
+    LPE("LPE", 100),
+    FA("FA", 100),
+    OTHER("", 100);
+
+    private static final Map<String, LipidClass> BY_ABBREVIATION = new HashMap<>();
+    // Codes of the types outside the enumeration, so each one still gets its own join key
+    private static final Map<String, Integer> OTHER_CODES = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_OTHER_CODE = new AtomicInteger(64);
+
+    static {
+        for (LipidClass lipidClass : values()) {
+            if (lipidClass != OTHER) {
+                BY_ABBREVIATION.put(lipidClass.abbreviation, lipidClass);
+            }
+        }
+    }
+
+    private final String abbreviation;
+    private final int rank;
+
+    LipidClass(String abbreviation, int rank) {
+        this.abbreviation = abbreviation;
+        this.rank = rank;
+    }
+
+    public String getAbbreviation() {
+        return abbreviation;
+    }
+
+    /**
+     * @return the elution rank of the class, 100 if it has none
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * @param lipidType lipid type as written in the lipid name (PC, PE, TG...)
+     * @return the class of the type, {@link #OTHER} if it is not in the enumeration
+     */
+    public static LipidClass fromType(String lipidType) {
+        LipidClass lipidClass = lipidType == null ? null : BY_ABBREVIATION.get(lipidType);
+        return lipidClass == null ? OTHER : lipidClass;
+    }
+
+    /**
+     * @return a small integer that identifies the lipid type, also for the types outside the enumeration
+     */
+    static int codeOf(String lipidType) {
+        LipidClass lipidClass = fromType(lipidType);
+        if (lipidClass != OTHER) {
+            return lipidClass.ordinal() + 1;
+        }
+        if (lipidType == null) {
+            return 0;
+        }
+        return OTHER_CODES.computeIfAbsent(lipidType, type -> NEXT_OTHER_CODE.getAndIncrement());
+    }
+}
@@ -0,0 +1,65 @@
+package lipid;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In memory {@link LipidLibrary}: the masses in a sorted primitive column and the lipids in a parallel array.
+ * Immutable, so it can be searched from many threads.
+ */
+public class LipidDatabase implements LipidLibrary {
+
+    private final double[] masses;
+    private final Lipid[] lipids;
+
+    /**
+     * @param lipids lipids in any order
+     * @param masses neutral monoisotopic mass of each lipid
+     */
+    public LipidDatabase(List<Lipid> lipids, double[] masses) {
+        if (lipids.size() != masses.length) {
+            throw new IllegalArgumentException("Expected " + lipids.size() + " masses, got " + masses.length);
+        }
+        Integer[] order = new Integer[masses.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(masses[a], masses[b]));
+        this.masses = new double[masses.length];
+        this.lipids = new Lipid[masses.length];
+        for (int i = 0; i < order.length; i++) {
+            this.masses[i] = masses[order[i]];
+            this.lipids[i] = lipids.get(order[i]);
+        }
+    }
+
+    @Override
+    public int size() {
+        return masses.length;
+    }
+
+    @Override
+    public double getMass(int index) {
+        return masses[index];
+    }
+
+    @Override
+    public Lipid getLipid(int index) {
+        return lipids[index];
+    }
+
+    @Override
+    public int lowerBound(double mass) {
+        int low = 0;
+        int high = masses.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (masses[middle] < mass) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,39 @@
+package lipid;
+
+/**
+ * Library of candidate lipids sorted by neutral monoisotopic mass, searched by {@link CandidateSearch}.
+ */
+public interface LipidLibrary {
+
+    /**
+     * @return number of lipids of the library
+     */
+    int size();
+
+    /**
+     * @return neutral monoisotopic mass of the lipid at the index. Masses are in ascending order.
+     */
+    double getMass(int index);
+
+    /**
+     * @return lipid at the index
+     */
+    Lipid getLipid(int index);
+
+    /**
+     * @return index of the first lipid with mass >= the given mass, or {@link #size()} if there is none
+     */
+    default int lowerBound(double mass) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getMass(middle) < mass) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
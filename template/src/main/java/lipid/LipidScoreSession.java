@@ -0,0 +1,195 @@
+package lipid;
+
+import org.drools.ruleunits.api.DataHandle;
+import org.drools.ruleunits.api.RuleUnitInstance;
+import org.drools.ruleunits.api.RuleUnitProvider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A {@link LipidScoreUnit} with its rule unit instance that can score many samples one after the other. The facts
+ * of a sample are removed by {@link #clear()}, so the next sample starts from an empty store without creating the
+ * unit and the instance again. A session must only be used by one thread at a time, see
+ * {@link LipidScoreSessionPool}.
+ * <p>
+ * Annotations can also be added and removed between fires to keep the scores of an open-ended stream of features
+ * up to date: each fire only evaluates the new pairs and a removal reverses the evidence of the removed annotation.
+ * The evidence of every scored pair is kept until one of its annotations is removed or the sample is cleared, see
+ * {@link ScoreEvidence}.
+ */
+public class LipidScoreSession implements AutoCloseable {
+
+    private final LipidScoreUnit lipidScoreUnit = new LipidScoreUnit();
+    private final RuleUnitInstance<LipidScoreUnit> instance;
+    private final ScoreEvidence scoreEvidence = new ScoreEvidence();
+    private final Map<Annotation, DataHandle> handles = new IdentityHashMap<>();
+    // candidate annotations of each feature, in order of arrival
+    private final Map<FeatureKey, List<Annotation>> features = new LinkedHashMap<>();
+    private AdductDetectionSession adductDetection;
+
+    public LipidScoreSession() {
+        this.instance = RuleUnitProvider.get().createRuleUnitInstance(lipidScoreUnit);
+    }
+
+    /**
+     * Adds the annotation to the current sample. The next {@link #fire()} only evaluates the pairs of the new
+     * annotations.
+     */
+    public void add(Annotation annotation) {
+        if (handles.containsKey(annotation)) {
+            throw new IllegalArgumentException("The annotation is already in the session: " + annotation);
+        }
+        handles.put(annotation, lipidScoreUnit.getAnnotations().add(annotation));
+        features.computeIfAbsent(new FeatureKey(annotation), key -> new ArrayList<>(4)).add(annotation);
+    }
+
+    public void addAll(Collection<Annotation> annotations) {
+        for (Annotation annotation : annotations) {
+            add(annotation);
+        }
+    }
+
+    /**
+     * Removes the annotation from the current sample and reverses the evidence of its pairs on its own score and on
+     * the scores of the annotations it was paired with
+     *
+     * @return false if the annotation was not in the session
+     */
+    public boolean remove(Annotation annotation) {
+        DataHandle handle = handles.remove(annotation);
+        if (handle == null) {
+            return false;
+        }
+        lipidScoreUnit.getAnnotations().remove(handle);
+        scoreEvidence.retract(annotation);
+        FeatureKey key = new FeatureKey(annotation);
+        List<Annotation> candidates = features.get(key);
+        candidates.removeIf(candidate -> candidate == annotation);
+        if (candidates.isEmpty()) {
+            features.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Fires the rules on the annotations added since the last fire
+     *
+     * @return number of rules fired
+     */
+    public int fire() {
+        return scoreEvidence.fire(instance);
+    }
+
+    /**
+     * @return number of annotations of the current sample
+     */
+    public int size() {
+        return handles.size();
+    }
+
+    /**
+     * Ends the current sample removing every annotation. Unlike {@link #remove(Annotation)}, the scores of the
+     * removed annotations are kept.
+     */
+    public void clear() {
+        for (DataHandle handle : handles.values()) {
+            lipidScoreUnit.getAnnotations().remove(handle);
+        }
+        handles.clear();
+        features.clear();
+        scoreEvidence.clear();
+        instance.fire();
+    }
+
+    /**
+     * Detects with the rules of {@link AdductDetectionUnit} and sets the adduct of every annotation of the current
+     * sample, each one with its own ionization mode
+     *
+     * @param mzTolerance absolute mz tolerance
+     */
+    public void detectAdducts(double mzTolerance) {
+        if (adductDetection == null) {
+            adductDetection = new AdductDetectionSession();
+        }
+        adductDetection.detect(handles.keySet(), mzTolerance);
+    }
+
+    /**
+     * @return the best k annotations of the sample by normalized score, best first
+     */
+    public List<Annotation> topK(int k) {
+        return TopAnnotations.select(handles.keySet(), k);
+    }
+
+    /**
+     * @return the best k candidate annotations of the feature with exactly this mz and RT, best first
+     */
+    public List<Annotation> topK(double mz, double rtMin, int k) {
+        List<Annotation> candidates = features.get(new FeatureKey(mz, rtMin));
+        return candidates == null ? Collections.emptyList() : TopAnnotations.select(candidates, k);
+    }
+
+    /**
+     * Lazily ranks the candidates of every feature: the best k of a feature are only selected when the stream
+     * reaches it. The session must not change while the stream is consumed.
+     */
+    public Stream<FeatureRanking> topKPerFeature(int k) {
+        return features.entrySet().stream()
+                .map(feature -> new FeatureRanking(feature.getKey().mz, feature.getKey().rtMin,
+                        TopAnnotations.select(feature.getValue(), k)));
+    }
+
+    public LipidScoreUnit getLipidScoreUnit() {
+        return lipidScoreUnit;
+    }
+
+    /**
+     * Evidence recorded by the fires of this session, used to reverse the scores of the removed annotations
+     */
+    public ScoreEvidence getScoreEvidence() {
+        return scoreEvidence;
+    }
+
+    @Override
+    public void close() {
+        handles.clear();
+        if (adductDetection != null) {
+            adductDetection.close();
+        }
+        instance.close();
+    }
+
+    private static final class FeatureKey {
+
+        private final double mz;
+        private final double rtMin;
+
+        FeatureKey(Annotation annotation) {
+            this(annotation.getMz(), annotation.getRtMin());
+        }
+
+        FeatureKey(double mz, double rtMin) {
+            this.mz = mz;
+            this.rtMin = rtMin;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FeatureKey)) return false;
+            FeatureKey that = (FeatureKey) o;
+            return Double.compare(mz, that.mz) == 0 && Double.compare(rtMin, that.rtMin) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Double.hashCode(mz) + Double.hashCode(rtMin);
+        }
+    }
+}
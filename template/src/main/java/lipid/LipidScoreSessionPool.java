@@ -0,0 +1,121 @@
+package lipid;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Fixed pool of warmed up {@link LipidScoreSession}s to score many samples without creating a rule unit instance
+ * per sample. Worker threads borrow a session, score one sample and release it; the release clears the session, so
+ * a sample never sees the facts of a previous one. A session that fails to clear is closed and replaced.
+ */
+public class LipidScoreSessionPool implements ElutionOrderScoring, AutoCloseable {
+
+    private final BlockingQueue<LipidScoreSession> idle;
+    private volatile boolean closed;
+
+    /**
+     * Creates and warms up the sessions
+     *
+     * @param size number of sessions, usually the number of worker threads
+     */
+    public LipidScoreSessionPool(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The pool needs at least one session");
+        }
+        this.idle = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            LipidScoreSession session = new LipidScoreSession();
+            warmUp(session);
+            idle.add(session);
+        }
+    }
+
+    /**
+     * Fires every rule once so the rule network and the consequences are loaded before the first sample
+     */
+    private static void warmUp(LipidScoreSession session) {
+        Lipid[] lipids = {
+                new Lipid(1, "PC 34:1", "", "PC", 34, 1),
+                new Lipid(2, "PC 36:1", "", "PC", 36, 1),
+                new Lipid(3, "PC 34:2", "", "PC", 34, 2),
+                new Lipid(4, "PE 34:1", "", "PE", 34, 1)};
+        double[] rts = {6, 7, 5, 4};
+        for (int i = 0; i < lipids.length; i++) {
+            session.add(new Annotation(lipids[i], 700 + i, 1000, rts[i], IonizationMode.POSITIVE));
+            session.add(new Annotation(lipids[i], 700 + i, 1000, 10 - rts[i], IonizationMode.POSITIVE));
+        }
+        session.fire();
+        session.clear();
+    }
+
+    /**
+     * Waits for an idle session. It must be given back with {@link #release(LipidScoreSession)}.
+     */
+    public LipidScoreSession borrow() throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("The session pool is closed");
+        }
+        return idle.take();
+    }
+
+    /**
+     * Clears the session and makes it available to other threads
+     */
+    public void release(LipidScoreSession session) {
+        LipidScoreSession available = session;
+        try {
+            session.clear();
+        } catch (RuntimeException e) {
+            session.close();
+            available = new LipidScoreSession();
+        }
+        if (closed) {
+            available.close();
+        } else {
+            idle.add(available);
+        }
+    }
+
+    /**
+     * Runs the work with a borrowed session, released afterward even if the work fails
+     */
+    public <T> T withSession(Function<LipidScoreSession, T> work) {
+        LipidScoreSession session;
+        try {
+            session = borrow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a score session", e);
+        }
+        try {
+            return work.apply(session);
+        } finally {
+            release(session);
+        }
+    }
+
+    /**
+     * Scores one sample in a pooled session
+     */
+    @Override
+    public void score(Collection<Annotation> annotations) {
+        withSession(session -> {
+            session.addAll(annotations);
+            return session.fire();
+        });
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        List<LipidScoreSession> sessions = new ArrayList<>();
+        idle.drainTo(sessions);
+        for (LipidScoreSession session : sessions) {
+            session.close();
+        }
+    }
+}
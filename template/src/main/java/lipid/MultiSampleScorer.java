@@ -0,0 +1,96 @@
+package lipid;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Scores many samples at the same time, each one with its own rule unit (or the given scoring), on virtual threads
+ * or on a bounded pool of platform threads. At most {@code concurrency} samples are scored at once, which bounds the
+ * memory of the rule units alive. Every sample is scored exactly as in a sequential run: the samples do not share
+ * annotations and the score updates of {@link Annotation} are atomic.
+ */
+public class MultiSampleScorer implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final ElutionOrderScoring scoring;
+
+    private MultiSampleScorer(ExecutorService executor, int concurrency, ElutionOrderScoring scoring) {
+        if (concurrency < 1) {
+            executor.shutdown();
+            throw new IllegalArgumentException("The concurrency must be at least 1");
+        }
+        this.executor = executor;
+        this.permits = new Semaphore(concurrency);
+        this.scoring = scoring;
+    }
+
+    /**
+     * One virtual thread per sample, at most concurrency of them scoring at once
+     */
+    public static MultiSampleScorer virtualThreads(int concurrency, ElutionOrderScoring scoring) {
+        return new MultiSampleScorer(Executors.newVirtualThreadPerTaskExecutor(), concurrency, scoring);
+    }
+
+    /**
+     * Fixed pool of concurrency platform threads
+     */
+    public static MultiSampleScorer platformThreads(int concurrency, ElutionOrderScoring scoring) {
+        return new MultiSampleScorer(Executors.newFixedThreadPool(Math.max(concurrency, 1)), concurrency, scoring);
+    }
+
+    /**
+     * Virtual threads with one new {@link LipidScoreUnit} per sample
+     */
+    public static MultiSampleScorer virtualThreads(int concurrency) {
+        return virtualThreads(concurrency, new RuleUnitElutionOrderScoring());
+    }
+
+    /**
+     * Scores every sample and waits until all of them are scored. If a sample fails, the other samples are still
+     * scored and the first failure is thrown afterward.
+     */
+    public void scoreAll(Collection<? extends Collection<Annotation>> samples) throws InterruptedException {
+        List<Future<?>> futures = new ArrayList<>(samples.size());
+        for (Collection<Annotation> sample : samples) {
+            futures.add(executor.submit(() -> {
+                permits.acquire();
+                try {
+                    scoring.score(sample);
+                } finally {
+                    permits.release();
+                }
+                return null;
+            }));
+        }
+        RuntimeException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                RuntimeException cause = e.getCause() instanceof RuntimeException
+                        ? (RuntimeException) e.getCause()
+                        : new IllegalStateException("Sample scoring failed", e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,33 @@
+package lipid;
+
+/**
+ * Fact of {@link AdductDetectionUnit}: a grouped signal of a request that may explain an adduct hypothesis. The
+ * signals within the tolerance of the annotation mz are the annotation itself and are not inserted.
+ */
+public class PeakFact {
+
+    private final AdductRequest request;
+    private final double mz;
+    private final long bucket;
+
+    public PeakFact(AdductRequest request, double mz, long bucket) {
+        this.request = request;
+        this.mz = mz;
+        this.bucket = bucket;
+    }
+
+    public AdductRequest getRequest() {
+        return request;
+    }
+
+    public double getMz() {
+        return mz;
+    }
+
+    /**
+     * @return mz bucket of the signal, see {@link AdductDetectionSession#bucket(double, double)}
+     */
+    public long getBucket() {
+        return bucket;
+    }
+}
@@ -0,0 +1,254 @@
+package lipid;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable list of peaks sorted by mz and stored as two primitive columns. Peaks with the same mz are kept once (the
+ * first one given), as a TreeSet of {@link Peak} would do. After deisotoping ({@link Deisotoper}) a third column keeps
+ * the charge state of each peak.
+ */
+public final class PeakList {
+
+    public static final PeakList EMPTY = new PeakList(new double[0], new double[0]);
+
+    private final double[] mz;
+    private final double[] intensity;
+    private final byte[] charge; // null when the charge states are unknown
+
+    private PeakList(double[] mz, double[] intensity) {
+        this(mz, intensity, null);
+    }
+
+    private PeakList(double[] mz, double[] intensity, byte[] charge) {
+        this.mz = mz;
+        this.intensity = intensity;
+        this.charge = charge;
+    }
+
+    /**
+     * The columns are used as they are: mz must be sorted without duplicates and the arrays must not be modified.
+     */
+    static PeakList ofSortedColumns(double[] mz, double[] intensity, byte[] charge) {
+        return mz.length == 0 ? EMPTY : new PeakList(mz, intensity, charge);
+    }
+
+    /**
+     * @param peaks peaks in any order
+     * @return the peaks sorted by mz without duplicated mz
+     */
+    public static PeakList of(Collection<Peak> peaks) {
+        if (peaks.isEmpty()) {
+            return EMPTY;
+        }
+        double[] mz = new double[peaks.size()];
+        double[] intensity = new double[peaks.size()];
+        int i = 0;
+        for (Peak peak : peaks) {
+            mz[i] = peak.getMz();
+            intensity[i] = peak.getIntensity();
+            i++;
+        }
+        return sortAndDeduplicate(mz, intensity);
+    }
+
+    /**
+     * @param mz        mz of the peaks in any order
+     * @param intensity intensity of the peaks, same length as mz
+     * @return the peaks sorted by mz without duplicated mz. The arrays are copied.
+     */
+    public static PeakList of(double[] mz, double[] intensity) {
+        if (mz.length != intensity.length) {
+            throw new IllegalArgumentException("mz and intensity lengths differ: " + mz.length + " != " + intensity.length);
+        }
+        if (mz.length == 0) {
+            return EMPTY;
+        }
+        return sortAndDeduplicate(mz.clone(), intensity.clone());
+    }
+
+    private static PeakList sortAndDeduplicate(double[] mz, double[] intensity) {
+        int n = mz.length;
+        boolean sorted = true;
+        for (int i = 1; i < n && sorted; i++) {
+            sorted = Double.compare(mz[i - 1], mz[i]) < 0;
+        }
+        if (sorted) {
+            return new PeakList(mz, intensity);
+        }
+
+        // Stable index sort so the first peak of a duplicated mz is the one kept
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(mz[a], mz[b]));
+        double[] sortedMz = new double[n];
+        double[] sortedIntensity = new double[n];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            int peak = order[i];
+            if (size > 0 && Double.compare(sortedMz[size - 1], mz[peak]) == 0) {
+                continue;
+            }
+            sortedMz[size] = mz[peak];
+            sortedIntensity[size] = intensity[peak];
+            size++;
+        }
+        if (size < n) {
+            sortedMz = Arrays.copyOf(sortedMz, size);
+            sortedIntensity = Arrays.copyOf(sortedIntensity, size);
+        }
+        return new PeakList(sortedMz, sortedIntensity);
+    }
+
+    public int size() {
+        return mz.length;
+    }
+
+    public boolean isEmpty() {
+        return mz.length == 0;
+    }
+
+    public double getMz(int index) {
+        return mz[index];
+    }
+
+    public double getIntensity(int index) {
+        return intensity[index];
+    }
+
+    /**
+     * @return the charge state of the peak, or 0 if it is unknown
+     */
+    public int getCharge(int index) {
+        return charge == null ? 0 : charge[index];
+    }
+
+    /**
+     * @return the sorted mz column. It is shared, so it must not be modified.
+     */
+    double[] mzColumn() {
+        return mz;
+    }
+
+    /**
+     * @return the intensity column in mz order. It is shared, so it must not be modified.
+     */
+    double[] intensityColumn() {
+        return intensity;
+    }
+
+    /**
+     * @return index of the first peak with mz >= the given mz, or {@link #size()} if there is none
+     */
+    public int lowerBound(double mz) {
+        int low = 0;
+        int high = this.mz.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.mz[middle] < mz) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return index of the first peak with mz > the given mz, or {@link #size()} if there is none
+     */
+    public int upperBound(double mz) {
+        int low = 0;
+        int high = this.mz.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.mz[middle] <= mz) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return number of peaks with minMz <= mz <= maxMz
+     */
+    public int countInRange(double minMz, double maxMz) {
+        return Math.max(0, upperBound(maxMz) - lowerBound(minMz));
+    }
+
+    /**
+     * @return the peaks with minMz <= mz <= maxMz
+     */
+    public PeakList range(double minMz, double maxMz) {
+        int from = lowerBound(minMz);
+        int to = Math.max(from, upperBound(maxMz));
+        if (from == 0 && to == mz.length) {
+            return this;
+        }
+        if (from == to) {
+            return EMPTY;
+        }
+        return new PeakList(Arrays.copyOfRange(mz, from, to), Arrays.copyOfRange(intensity, from, to),
+                charge == null ? null : Arrays.copyOfRange(charge, from, to));
+    }
+
+    /**
+     * @return index of the peak with exactly that mz, or a negative value if there is none
+     */
+    public int indexOf(double mz) {
+        int index = lowerBound(mz);
+        return index < this.mz.length && Double.compare(this.mz[index], mz) == 0 ? index : -1;
+    }
+
+    /**
+     * @return an unmodifiable set view sorted by mz. {@link Peak} objects are created while iterating.
+     */
+    public Set<Peak> asSet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Peak> iterator() {
+                return new Iterator<>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < mz.length;
+                    }
+
+                    @Override
+                    public Peak next() {
+                        if (next >= mz.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Peak peak = new Peak(mz[next], intensity[next]);
+                        next++;
+                        return peak;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return mz.length;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Peak && indexOf(((Peak) o).getMz()) >= 0;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "PeakList(size=" + mz.length + ")";
+    }
+}
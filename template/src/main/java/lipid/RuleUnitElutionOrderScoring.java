@@ -0,0 +1,26 @@
+package lipid;
+
+import org.drools.ruleunits.api.RuleUnitInstance;
+import org.drools.ruleunits.api.RuleUnitProvider;
+
+import java.util.Collection;
+
+/**
+ * Scores the annotations firing the rules of lipids.drl in a new {@link LipidScoreUnit}
+ */
+public class RuleUnitElutionOrderScoring implements ElutionOrderScoring {
+
+    @Override
+    public void score(Collection<Annotation> annotations) {
+        LipidScoreUnit lipidScoreUnit = new LipidScoreUnit();
+        RuleUnitInstance<LipidScoreUnit> instance = RuleUnitProvider.get().createRuleUnitInstance(lipidScoreUnit);
+        try {
+            for (Annotation annotation : annotations) {
+                lipidScoreUnit.getAnnotations().add(annotation);
+            }
+            instance.fire();
+        } finally {
+            instance.close();
+        }
+    }
+}
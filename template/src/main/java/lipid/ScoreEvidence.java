@@ -0,0 +1,114 @@
+package lipid;
+
+import org.drools.ruleunits.api.RuleUnitInstance;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Ledger of the score evidence given by the rule consequences. Each firing records the pair of annotations and the
+ * delta added to both, so the contributions of an annotation can be reversed when it is removed from the
+ * {@link LipidScoreUnit}: the engine drops the matches of a removed fact but cannot undo their consequences.
+ * <p>
+ * The ledger is not a variable of the unit: the rules call {@link #score(Annotation, Annotation, int)}, which
+ * records into the ledger bound to the firing thread by {@link #fire(RuleUnitInstance)}. Without a bound ledger,
+ * as in a one-shot scoring, the delta is only added to the scores.
+ * <p>
+ * The ledger holds one entry per scored pair of annotations that are still in the unit, so it grows with the pairs of
+ * the current sample. On an open-ended stream, remove the annotations leaving the RT window, which frees their
+ * entries, or {@link #clear()} the ledger once its annotations will not be removed anymore.
+ * <p>
+ * Annotations are compared by identity. A ledger belongs to one session and is not thread safe.
+ */
+public class ScoreEvidence {
+
+    private static final ThreadLocal<ScoreEvidence> FIRING = new ThreadLocal<>();
+
+    // annotation -> partner -> sum of the deltas of the pair (one firing per pair and rule)
+    private final Map<Annotation, Map<Annotation, int[]>> pairs = new IdentityHashMap<>();
+
+    /**
+     * Consequence of the scoring rules: adds delta to the score of both annotations, recording it in the ledger of
+     * the fire running on this thread, if any
+     */
+    public static void score(Annotation a1, Annotation a2, int delta) {
+        ScoreEvidence evidence = FIRING.get();
+        if (evidence == null) {
+            a1.addScore(delta);
+            a2.addScore(delta);
+        } else {
+            evidence.record(a1, a2, delta);
+        }
+    }
+
+    /**
+     * Fires the instance recording the evidence of its consequences in this ledger
+     *
+     * @return number of rules fired
+     */
+    public int fire(RuleUnitInstance<?> instance) {
+        ScoreEvidence previous = FIRING.get();
+        FIRING.set(this);
+        try {
+            return instance.fire();
+        } finally {
+            if (previous == null) {
+                FIRING.remove();
+            } else {
+                FIRING.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Adds delta to the score of both annotations and remembers it
+     */
+    public void record(Annotation a1, Annotation a2, int delta) {
+        a1.addScore(delta);
+        a2.addScore(delta);
+        remember(a1, a2, delta);
+        remember(a2, a1, delta);
+    }
+
+    private void remember(Annotation annotation, Annotation partner, int delta) {
+        int[] evidence = pairs.computeIfAbsent(annotation, a -> new IdentityHashMap<>())
+                .computeIfAbsent(partner, p -> new int[2]);
+        evidence[0] += delta;
+        evidence[1]++;
+    }
+
+    /**
+     * Reverses every contribution of the pairs of the annotation, on the annotation and on its partners
+     */
+    public void retract(Annotation annotation) {
+        Map<Annotation, int[]> partners = pairs.remove(annotation);
+        if (partners == null) {
+            return;
+        }
+        for (Map.Entry<Annotation, int[]> entry : partners.entrySet()) {
+            Annotation partner = entry.getKey();
+            int[] evidence = entry.getValue();
+            annotation.addScores(-evidence[0], -evidence[1]);
+            partner.addScores(-evidence[0], -evidence[1]);
+            Map<Annotation, int[]> partnerPairs = pairs.get(partner);
+            partnerPairs.remove(annotation);
+            if (partnerPairs.isEmpty()) {
+                pairs.remove(partner);
+            }
+        }
+    }
+
+    /**
+     * @return number of annotations with evidence
+     */
+    public int size() {
+        return pairs.size();
+    }
+
+    /**
+     * Forgets the evidence keeping the scores, once the annotations will not be removed anymore
+     */
+    public void clear() {
+        pairs.clear();
+    }
+}
@@ -0,0 +1,58 @@
+package lipid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selection of the best K annotations with a bounded heap: O(N log K) time and O(K) memory, without sorting or
+ * copying the annotations.
+ */
+public final class TopAnnotations {
+
+    /**
+     * Best annotation first: higher normalized score, then more rules applied. Annotations without applied rules
+     * (normalized score NaN) come last.
+     */
+    public static final Comparator<Annotation> BEST_FIRST = (a1, a2) -> {
+        double score1 = a1.getNormalizedScore();
+        double score2 = a2.getNormalizedScore();
+        boolean unscored1 = Double.isNaN(score1);
+        boolean unscored2 = Double.isNaN(score2);
+        if (unscored1 || unscored2) {
+            return Boolean.compare(unscored1, unscored2);
+        }
+        int byScore = Double.compare(score2, score1);
+        return byScore != 0 ? byScore : Integer.compare(a2.getTotalScoresApplied(), a1.getTotalScoresApplied());
+    };
+
+    private TopAnnotations() {
+    }
+
+    /**
+     * @return the best k annotations, best first
+     */
+    public static List<Annotation> select(Iterable<Annotation> annotations, int k) {
+        if (k < 1) {
+            return Collections.emptyList();
+        }
+        // Worst of the selected on top, replaced by any better annotation
+        PriorityQueue<Annotation> heap = new PriorityQueue<>(Math.min(k, 64), BEST_FIRST.reversed());
+        for (Annotation annotation : annotations) {
+            if (heap.size() < k) {
+                heap.add(annotation);
+            } else if (BEST_FIRST.compare(annotation, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(annotation);
+            }
+        }
+        Annotation[] best = new Annotation[heap.size()];
+        for (int i = best.length - 1; i >= 0; i--) {
+            best[i] = heap.poll();
+        }
+        return new ArrayList<>(Arrays.asList(best));
+    }
+}
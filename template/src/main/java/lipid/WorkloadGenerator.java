@@ -0,0 +1,270 @@
+package lipid;
+
+import adduct.AdductDescriptor;
+import adduct.AdductList;
+import adduct.AdductRegistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic generator of synthetic LC-MS features to load test and profile the annotation at production scale.
+ * The same seed and parameters always give the same features.
+ * <p>
+ * Every feature is a glycerolipid of a class of {@link #CLASSES} made of fatty acyl chains drawn from the usual chain
+ * distribution (16:0, 18:1, 18:2...), so carbons and double bonds follow the shape of a real lipidome. The RT follows
+ * the elution trends the rules score: PG &lt; PE &lt; PI &lt; PA &lt; PS &lt; PC, more carbons later and more double
+ * bonds earlier, plus gaussian noise of rtNoise minutes. A fraction inversionRate of the features is moved
+ * {@link #INVERSION_SHIFT} minutes, more than any step of the trends, so it breaks the order with its neighbours.
+ * <p>
+ * The grouped signals of a feature are its ion with the adducts of {@link AdductList} and the 13C isotopes of each
+ * adduct. Features are created one at a time, so they can be streamed to a file or a session without keeping them.
+ */
+public class WorkloadGenerator {
+
+    /**
+     * Lipid classes generated, with the relative abundance of CLASS_WEIGHTS
+     */
+    static final LipidClass[] CLASSES = {LipidClass.PG, LipidClass.PE, LipidClass.PI, LipidClass.PA, LipidClass.PS,
+            LipidClass.PC, LipidClass.TG};
+    private static final double[] CLASS_WEIGHTS = {0.06, 0.20, 0.08, 0.04, 0.07, 0.35, 0.20};
+
+    // Fatty acyl chains carbons:double bonds and their relative abundance
+    private static final int[][] CHAINS = {{14, 0}, {16, 0}, {16, 1}, {18, 0}, {18, 1}, {18, 2}, {18, 3}, {20, 4},
+            {20, 5}, {22, 6}};
+    private static final double[] CHAIN_WEIGHTS = {0.03, 0.24, 0.04, 0.14, 0.24, 0.14, 0.03, 0.08, 0.02, 0.04};
+
+    // Minutes of the elution trends: per class rank, per carbon and per double bond
+    static final double CLASS_STEP = 0.25;
+    static final double CARBON_STEP = 0.35;
+    static final double DOUBLE_BOND_STEP = 0.45;
+    static final double INVERSION_SHIFT = 1.0;
+    private static final double TG_OFFSET = 4.0;
+
+    // Probability of each adduct besides the main one
+    private static final double ADDUCT_PROBABILITY = 0.3;
+    private static final double MULTIMER_PROBABILITY = 0.05;
+    private static final int ISOTOPES = 2;
+    // 13C natural abundance
+    private static final double C13_ABUNDANCE = 0.0107;
+
+    private static final double H = 1.00782503207;
+    private static final double C = 12.0;
+    private static final double N = 14.0030740048;
+    private static final double O = 15.99491461956;
+    private static final double P = 30.97376163;
+
+    private final SplittableRandom random;
+    private final IonizationMode ionizationMode;
+    private final double rtNoise;
+    private final double inversionRate;
+    private final AdductDescriptor mainAdduct;
+    private final List<AdductDescriptor> otherAdducts = new ArrayList<>();
+    private final double[] classCumulative = cumulative(CLASS_WEIGHTS);
+    private final double[] chainCumulative = cumulative(CHAIN_WEIGHTS);
+    private int nextCompoundId;
+
+    /**
+     * @param seed           seed of the workload
+     * @param ionizationMode mode of the adducts generated
+     * @param rtNoise        standard deviation of the RT noise in minutes
+     * @param inversionRate  fraction of the features that break the elution order, between 0 and 1
+     */
+    public WorkloadGenerator(long seed, IonizationMode ionizationMode, double rtNoise, double inversionRate) {
+        if (ionizationMode == null) {
+            throw new IllegalArgumentException("The ionization mode is required");
+        }
+        if (rtNoise < 0 || !(inversionRate >= 0 && inversionRate <= 1)) {
+            throw new IllegalArgumentException("Invalid RT noise " + rtNoise + " or inversion rate " + inversionRate);
+        }
+        this.random = new SplittableRandom(seed);
+        this.ionizationMode = ionizationMode;
+        this.rtNoise = rtNoise;
+        this.inversionRate = inversionRate;
+        Map<String, Double> adducts = ionizationMode == IonizationMode.POSITIVE
+                ? AdductList.MAPMZPOSITIVEADDUCTS : AdductList.MAPMZNEGATIVEADDUCTS;
+        // The first adduct of the list ([M+H]+, [M-H]−) is the ion of every feature
+        // The descriptors are resolved once instead of parsing the adduct names for every feature
+        String main = adducts.keySet().iterator().next();
+        this.mainAdduct = AdductRegistry.get(main);
+        for (String adduct : adducts.keySet()) {
+            if (!adduct.equals(main)) {
+                otherAdducts.add(AdductRegistry.get(adduct));
+            }
+        }
+    }
+
+    /**
+     * Generator with 0.1 minutes of RT noise and 2% of inversions
+     */
+    public WorkloadGenerator(long seed, IonizationMode ionizationMode) {
+        this(seed, ionizationMode, 0.1, 0.02);
+    }
+
+    /**
+     * @return the next feature, annotated with the lipid it was generated from
+     */
+    public Annotation next() {
+        LipidClass lipidClass = CLASSES[pick(classCumulative)];
+        int chains = lipidClass == LipidClass.TG ? 3 : 2;
+        int carbons = 0;
+        int doubleBonds = 0;
+        for (int i = 0; i < chains; i++) {
+            int[] chain = CHAINS[pick(chainCumulative)];
+            carbons += chain[0];
+            doubleBonds += chain[1];
+        }
+        String formula = formula(lipidClass, carbons, doubleBonds);
+        double mass = monoisotopicMass(lipidClass, carbons, doubleBonds);
+        String type = lipidClass.getAbbreviation();
+        Lipid lipid = new Lipid(nextCompoundId++, type + " " + carbons + ":" + doubleBonds, formula, type, carbons,
+                doubleBonds);
+
+        double mz = mainAdduct.toIonMz(mass);
+        double intensity = Math.pow(10, 4 + 2 * random.nextDouble());
+        double[] peakMz = new double[(1 + otherAdducts.size()) * (1 + ISOTOPES)];
+        double[] peakIntensity = new double[peakMz.length];
+        int peaks = addIonPeaks(mainAdduct, mz, intensity, carbons, peakMz, peakIntensity, 0);
+        for (AdductDescriptor adduct : otherAdducts) {
+            boolean multimer = adduct.getMultimer() > 1;
+            if (random.nextDouble() < (multimer ? MULTIMER_PROBABILITY : ADDUCT_PROBABILITY)) {
+                peaks = addIonPeaks(adduct, adduct.toIonMz(mass), intensity * (0.05 + 0.6 * random.nextDouble()),
+                        carbons * adduct.getMultimer(), peakMz, peakIntensity, peaks);
+            }
+        }
+        PeakList signals = PeakList.of(Arrays.copyOf(peakMz, peaks),
+                Arrays.copyOf(peakIntensity, peaks));
+
+        return new Annotation(lipid, mz, intensity, retentionTime(lipidClass, carbons, doubleBonds), ionizationMode,
+                signals);
+    }
+
+    /**
+     * @return a lazy stream of the next count features
+     */
+    public Stream<Annotation> stream(long count) {
+        return Stream.generate(this::next).limit(count);
+    }
+
+    /**
+     * Hands the next count features to the sink, one at a time
+     */
+    public void generate(long count, Consumer<? super Annotation> sink) {
+        for (long i = 0; i < count; i++) {
+            sink.accept(next());
+        }
+    }
+
+    /**
+     * Inserts the next count features in the session
+     */
+    public void generate(long count, LipidScoreSession session) {
+        generate(count, session::add);
+    }
+
+    /**
+     * Expected RT of a lipid without noise nor inversion
+     */
+    static double expectedRetentionTime(LipidClass lipidClass, int carbons, int doubleBonds) {
+        double classOffset = lipidClass == LipidClass.TG ? TG_OFFSET : lipidClass.getRank() * CLASS_STEP;
+        return 1.0 + classOffset + CARBON_STEP * (carbons - 28) - DOUBLE_BOND_STEP * doubleBonds;
+    }
+
+    private double retentionTime(LipidClass lipidClass, int carbons, int doubleBonds) {
+        double rt = expectedRetentionTime(lipidClass, carbons, doubleBonds) + random.nextGaussian() * rtNoise;
+        if (inversionRate > 0 && random.nextDouble() < inversionRate) {
+            rt += random.nextBoolean() ? INVERSION_SHIFT : -INVERSION_SHIFT;
+        }
+        return Math.max(0.1, rt);
+    }
+
+    /**
+     * Adds the peak of one ion and its 13C isotopes, whose relative intensity follows the number of carbons
+     */
+    private static int addIonPeaks(AdductDescriptor adduct, double mz, double intensity, int carbons, double[] peakMz,
+                                   double[] peakIntensity, int peaks) {
+        int charge = adduct.getCharge();
+        double spacing = Deisotoper.C13_SPACING / charge;
+        double ratio = carbons * C13_ABUNDANCE;
+        double isotopeIntensity = intensity;
+        peakMz[peaks] = mz;
+        peakIntensity[peaks++] = intensity;
+        for (int i = 1; i <= ISOTOPES; i++) {
+            // Poisson approximation of the isotope envelope
+            isotopeIntensity *= ratio / i;
+            peakMz[peaks] = mz + i * spacing;
+            peakIntensity[peaks++] = isotopeIntensity;
+        }
+        return peaks;
+    }
+
+    /**
+     * Formula of the diacyl glycerophospholipid or triacylglycerol with the given chains
+     */
+    static String formula(LipidClass lipidClass, int carbons, int doubleBonds) {
+        int[] atoms = atoms(lipidClass, carbons, doubleBonds);
+        StringBuilder formula = new StringBuilder().append('C').append(atoms[0]).append('H').append(atoms[1]);
+        if (atoms[2] > 0) {
+            formula.append('N');
+        }
+        formula.append('O').append(atoms[3]);
+        if (atoms[4] > 0) {
+            formula.append('P');
+        }
+        return formula.toString();
+    }
+
+    static double monoisotopicMass(LipidClass lipidClass, int carbons, int doubleBonds) {
+        int[] atoms = atoms(lipidClass, carbons, doubleBonds);
+        return atoms[0] * C + atoms[1] * H + atoms[2] * N + atoms[3] * O + atoms[4] * P;
+    }
+
+    /**
+     * @return C, H, N, O and P atoms of the lipid. The head group adds to the carbons and hydrogens of the chains.
+     */
+    private static int[] atoms(LipidClass lipidClass, int carbons, int doubleBonds) {
+        int hydrogens = 2 * carbons - 2 * doubleBonds;
+        switch (lipidClass) {
+            case PG:
+                return new int[]{carbons + 6, hydrogens + 11, 0, 10, 1};
+            case PE:
+                return new int[]{carbons + 5, hydrogens + 10, 1, 8, 1};
+            case PI:
+                return new int[]{carbons + 9, hydrogens + 15, 0, 13, 1};
+            case PA:
+                return new int[]{carbons + 3, hydrogens + 5, 0, 8, 1};
+            case PS:
+                return new int[]{carbons + 6, hydrogens + 10, 1, 10, 1};
+            case PC:
+                return new int[]{carbons + 8, hydrogens + 16, 1, 8, 1};
+            case TG:
+                return new int[]{carbons + 3, hydrogens + 2, 0, 6, 0};
+            default:
+                throw new IllegalArgumentException("No formula for the class " + lipidClass);
+        }
+    }
+
+    private int pick(double[] cumulative) {
+        double value = random.nextDouble() * cumulative[cumulative.length - 1];
+        int i = 0;
+        while (i < cumulative.length - 1 && value >= cumulative[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
+}
@@ -0,0 +1,51 @@
+package main;
+
+import io.FeatureTableWriter;
+import io.ResultWriter;
+import lipid.Annotation;
+import lipid.IonizationMode;
+import lipid.WorkloadGenerator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+
+/**
+ * Writes a synthetic workload of {@link WorkloadGenerator}:
+ * {@code GenerateWorkload <output> <features> [seed] [POSITIVE|NEGATIVE]}.
+ * <p>
+ * An output ending in .csv, .tsv or .bin is written with {@link ResultWriter}; any other output is a
+ * {@link io.FeatureTable} directory with the grouped signals. Features are streamed, so the size is only limited by
+ * the disk.
+ */
+public class GenerateWorkload {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: GenerateWorkload <output> <features> [seed] [POSITIVE|NEGATIVE]");
+            System.exit(2);
+        }
+        Path output = Paths.get(args[0]);
+        long features = Long.parseLong(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0L;
+        IonizationMode ionizationMode = args.length > 3 ? IonizationMode.valueOf(args[3]) : IonizationMode.POSITIVE;
+
+        Iterator<Annotation> workload = new WorkloadGenerator(seed, ionizationMode).stream(features).iterator();
+        String name = output.getFileName().toString();
+        if (name.endsWith(".csv") || name.endsWith(".tsv") || name.endsWith(".bin")) {
+            try (ResultWriter writer = ResultWriter.open(output)) {
+                while (workload.hasNext()) {
+                    writer.write(workload.next());
+                }
+            }
+        } else {
+            try (FeatureTableWriter writer = new FeatureTableWriter(output)) {
+                while (workload.hasNext()) {
+                    writer.append(workload.next());
+                }
+            }
+        }
+        System.out.println("Wrote " + features + " features to " + output);
+    }
+}
@@ -1,26 +1,21 @@
 package main;
 
-import lipid.LipidScoreUnit;
-import org.drools.ruleunits.api.RuleUnitInstance;
-import org.drools.ruleunits.api.RuleUnitProvider;
+import lipid.Annotation;
+import lipid.LipidScoreSession;
 
 import java.util.List;
 
 public class Main {
 
     public static void main(String[] args) {
-        LipidScoreUnit lipidScoreUnit = new LipidScoreUnit();
-
-        RuleUnitInstance<LipidScoreUnit> instance = RuleUnitProvider.get().createRuleUnitInstance(lipidScoreUnit);
-
-        try {
+        try (LipidScoreSession session = new LipidScoreSession()) {
             // TODO INTRODUCE THE CODE IF DESIRED TO INSERT FACTS AND TRIGGER RULES
-            instance.fire();
-            // TODO INTRODUCE THE QUERIES IF DESIRED
-
+            session.fire();
 
-        } finally {
-            instance.close();
+            // Best 3 candidate lipids of every feature and best 10 annotations of the sample
+            session.topKPerFeature(3).forEach(System.out::println);
+            List<Annotation> best = session.topK(10);
+            best.forEach(System.out::println);
         }
     }
 }
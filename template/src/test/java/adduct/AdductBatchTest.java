@@ -0,0 +1,51 @@
+package adduct;
+
+import lipid.IonizationMode;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdductBatchTest {
+
+    private static final double[] MZ = {350.754, 682.4894, 700.500, 722.482, 738.4564};
+
+    @Test
+    public void shouldConvertSpectraInBatch() {
+        List<AdductDescriptor> adducts = AdductRegistry.forMode(IonizationMode.POSITIVE);
+        double[][] masses = new double[adducts.size()][3];
+
+        AdductBatch.monoisotopicMassesFromMz(MZ, 1, 4, adducts, masses);
+
+        for (int a = 0; a < adducts.size(); a++) {
+            AdductDescriptor adduct = adducts.get(a);
+            double[] backToMz = new double[3];
+            AdductBatch.mzFromMonoisotopicMasses(masses[a], 0, 3, adduct, backToMz, 0);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(adduct.toMonoisotopicMass(MZ[i + 1]), masses[a][i], 0d);
+                assertEquals(adduct.toMz(masses[a][i]), backToMz[i], 0d);
+            }
+        }
+    }
+
+    @Test
+    public void shouldComputePpmErrors() {
+        double[] ppm = new double[MZ.length];
+        AdductBatch.ppmErrors(MZ, 0, MZ.length, 700.500, ppm, 0);
+        assertEquals(0d, ppm[2], 0d);
+        assertEquals(Adduct.calculatePPMIncrement(722.482, 700.500), Math.round(ppm[3]));
+    }
+
+    @Test
+    public void shouldComputeTheSamePpmErrorsWithBothOverloads() {
+        double[] theoretical = {350.7512, 682.4901, 700.4999, 722.4831, 738.4522};
+        double[] elementWise = new double[MZ.length];
+        AdductBatch.ppmErrors(MZ, 0, MZ.length, theoretical, 0, elementWise, 0);
+        double[] single = new double[1];
+        for (int i = 0; i < MZ.length; i++) {
+            AdductBatch.ppmErrors(MZ, i, i + 1, theoretical[i], single, 0);
+            assertEquals(single[0], elementWise[i], 0d);
+        }
+    }
+}
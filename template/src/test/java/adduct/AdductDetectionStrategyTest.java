@@ -0,0 +1,56 @@
+package adduct;
+
+import lipid.IonizationMode;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdductDetectionStrategyTest {
+
+    private final AdductDetectionStrategy reference = new NestedLoopAdductDetection();
+
+    private void assertSameAsReference(AdductDetectionStrategy strategy, long seed, int groups) {
+        Random random = new Random(seed);
+        for (int g = 0; g < groups; g++) {
+            IonizationMode ionizationMode = random.nextBoolean() ? IonizationMode.POSITIVE : IonizationMode.NEGATIVE;
+            List<AdductDescriptor> adducts = AdductRegistry.forMode(ionizationMode);
+            double monoisotopicMass = 400 + random.nextDouble() * 600;
+
+            // Some signals explained by the adducts of the same compound, the rest random noise
+            double[] signals = new double[2 + random.nextInt(8)];
+            for (int i = 0; i < signals.length; i++) {
+                signals[i] = random.nextInt(3) == 0
+                        ? 100 + random.nextDouble() * 1800
+                        : adducts.get(random.nextInt(adducts.size())).toMz(monoisotopicMass) + random.nextGaussian() * 0.002;
+            }
+            Arrays.sort(signals);
+            double mz = signals[random.nextInt(signals.length)];
+            double tolerance = random.nextBoolean() ? 0.005 : 0.5;
+
+            assertEquals("group " + g + " " + Arrays.toString(signals) + " mz " + mz,
+                    reference.detect(mz, signals, 0, signals.length, ionizationMode, tolerance),
+                    strategy.detect(mz, signals, 0, signals.length, ionizationMode, tolerance));
+        }
+    }
+
+    @Test
+    public void sortedPeakDetectionShouldMatchNestedLoop() {
+        assertSameAsReference(new SortedPeakAdductDetection(), 42L, 50);
+    }
+
+    @Test
+    public void massDifferenceDetectionShouldMatchNestedLoop() {
+        assertSameAsReference(new MassDifferenceAdductDetection(), 7L, 50);
+    }
+
+    @Test
+    public void shouldNotDetectWithLessThanTwoSignals() {
+        double[] signals = {700.5};
+        assertEquals(AdductDetectionStrategy.NOT_ENOUGH_SIGNALS,
+                new SortedPeakAdductDetection().detect(700.5, signals, 0, 1, IonizationMode.POSITIVE, 0.01));
+    }
+}
@@ -0,0 +1,74 @@
+package adduct;
+
+import lipid.IonizationMode;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class AdductRegistryTest {
+
+    @Test
+    public void shouldKeepTheOrderOfAdductList() {
+        List<AdductDescriptor> positive = AdductRegistry.forMode(IonizationMode.POSITIVE);
+        int i = 0;
+        for (String adduct : AdductList.MAPMZPOSITIVEADDUCTS.keySet()) {
+            assertEquals(adduct, positive.get(i++).getName());
+        }
+        List<AdductDescriptor> negative = AdductRegistry.forMode(IonizationMode.NEGATIVE);
+        i = 0;
+        for (String adduct : AdductList.MAPMZNEGATIVEADDUCTS.keySet()) {
+            assertEquals(adduct, negative.get(i++).getName());
+        }
+        assertEquals(positive.size() + negative.size(), AdductRegistry.size());
+    }
+
+    @Test
+    public void shouldParseChargeAndMultimer() {
+        AdductDescriptor doublyCharged = AdductRegistry.get("[M+2H]2+");
+        assertEquals(2, doublyCharged.getCharge());
+        assertEquals(1, doublyCharged.getMultimer());
+        assertEquals(IonizationMode.POSITIVE, doublyCharged.getIonizationMode());
+
+        AdductDescriptor dimer = AdductRegistry.get("[2M-H]−");
+        assertEquals(1, dimer.getCharge());
+        assertEquals(2, dimer.getMultimer());
+        assertEquals(IonizationMode.NEGATIVE, dimer.getIonizationMode());
+
+        assertSame(dimer, AdductRegistry.get(dimer.getId()));
+        assertNull(AdductRegistry.get("[M+Xx]+"));
+    }
+
+    @Test
+    public void shouldConvertLikeTheStringBasedMethods() {
+        double mz = 700.500;
+        for (Map<String, Double> adducts : List.of(AdductList.MAPMZPOSITIVEADDUCTS, AdductList.MAPMZNEGATIVEADDUCTS)) {
+            for (Map.Entry<String, Double> entry : adducts.entrySet()) {
+                String adduct = entry.getKey();
+                int multimer = Adduct.extractMultimer(adduct);
+                int charge = Adduct.extractCharge(adduct);
+                double expectedMass = (mz + entry.getValue()) * charge / multimer;
+
+                AdductDescriptor descriptor = AdductRegistry.get(adduct);
+                assertEquals(expectedMass, descriptor.toMonoisotopicMass(mz), 0d);
+                assertEquals(expectedMass, AdductRegistry.toMonoisotopicMass(descriptor.getId(), mz), 0d);
+                assertEquals(expectedMass, Adduct.getMonoisotopicMassFromMZ(mz, adduct), 0d);
+
+                double backToMz = Adduct.getMZFromMonoisotopicMass(expectedMass, adduct);
+                assertEquals(backToMz, descriptor.toMz(expectedMass), 0d);
+                assertEquals(backToMz, AdductRegistry.toMz(descriptor.getId(), expectedMass), 0d);
+                // the multimers too: [2M+H]+ goes back to its own mz
+                assertEquals(mz, descriptor.toIonMz(expectedMass), 1e-9);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownAdductNames() {
+        Adduct.getMZFromMonoisotopicMass(700.5, "[M+Xx]+");
+    }
+}
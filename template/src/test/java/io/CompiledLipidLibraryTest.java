@@ -0,0 +1,51 @@
+package io;
+
+import lipid.CandidateSearch;
+import lipid.IonizationMode;
+import lipid.LipidCandidate;
+import lipid.LipidDatabase;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CompiledLipidLibraryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldServeTheSameCandidatesAsTheTextLibrary() throws IOException {
+        Path text = folder.newFile("lipids.csv").toPath();
+        Files.writeString(text, String.join("\n",
+                "# compoundId,name,formula,class,carbons,doubleBonds,exactMass",
+                "1,PC 34:1,C42H82NO8P,PC,34,1,759.5778",
+                "2,PE 36:2,C41H78NO8P,PE,36,2,743.5465",
+                "3,PC 34:1 isomer,C42H82NO8P,PC,34,1,759.5778",
+                "4,TG 54:3,C57H104O6,TG,54,3,884.7833",
+                ""));
+        LipidDatabase database = LipidLibraryReader.read(text);
+        Path compiled = folder.newFile("lipids.lib").toPath();
+
+        CompiledLipidLibrary.compile(database, compiled);
+        CompiledLipidLibrary library = CompiledLipidLibrary.open(compiled);
+
+        assertEquals(database.size(), library.size());
+        for (int i = 0; i < library.size(); i++) {
+            assertEquals(database.getMass(i), library.getMass(i), 0d);
+            assertEquals(database.getLipid(i).toString(), library.getLipid(i).toString());
+        }
+        assertSame(library.getLipid(0), library.getLipid(0));
+
+        List<LipidCandidate> candidates = new CandidateSearch(library, 5).search(760.5851, IonizationMode.POSITIVE);
+        assertEquals(2, candidates.size());
+        assertEquals(database.getLipid(1), candidates.get(0).getLipid());
+    }
+}
@@ -0,0 +1,78 @@
+package io;
+
+import adduct.SortedPeakAdductDetection;
+import lipid.Annotation;
+import lipid.IonizationMode;
+import lipid.Lipid;
+import lipid.Peak;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class FeatureTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadBackTheWrittenFeatures() throws IOException {
+        Lipid lipid = new Lipid(1, "PC 34:1", "C42H82NO8P", "PC", 34, 1);
+        Peak mH = new Peak(700.500, 100000.0);
+        Peak mNa = new Peak(722.482, 80000.0);
+        Peak mK = new Peak(738.4564, 80000.0);
+        List<Annotation> annotations = List.of(
+                new Annotation(lipid, 700.49999, 80000.0, 6.5d, IonizationMode.POSITIVE, Set.of(mH, mNa)),
+                new Annotation(lipid, 738.4564, 80000.0, 6.5d, IonizationMode.POSITIVE, Set.of(mH, mK)),
+                new Annotation(null, 600.3, 95000.0, 6.8d, IonizationMode.NEGATIVE));
+        annotations.get(0).addScore(1);
+        annotations.get(0).addScore(-1);
+        annotations.get(1).addScore(1);
+
+        Path directory = folder.newFolder("features").toPath();
+        try (FeatureTableWriter writer = new FeatureTableWriter(directory)) {
+            for (Annotation annotation : annotations) {
+                writer.append(annotation);
+            }
+        }
+
+        FeatureTable table = FeatureTable.open(directory);
+        assertEquals(3, table.size());
+        assertEquals(4, table.peakCount());
+        FeatureView view = table.view();
+        for (int row = 0; row < annotations.size(); row++) {
+            Annotation annotation = annotations.get(row);
+            view.moveTo(row);
+            assertEquals(annotation.getMz(), view.getMz(), 0d);
+            assertEquals(annotation.getRtMin(), view.getRtMin(), 0d);
+            assertEquals(annotation.getIonizationMode(), view.getIonizationMode());
+            assertEquals(annotation.getGroupedSignals().size(), view.getSignalCount());
+            assertEquals(annotation.detectAdductFromSignals(annotation.getIonizationMode(), 2d),
+                    view.detectAdductFromSignals(view.getIonizationMode(), 2d, new SortedPeakAdductDetection()));
+            assertEquals(annotation.getScore(), view.getScore());
+            assertEquals(annotation.getTotalScoresApplied(), view.getTotalScoresApplied());
+            Annotation materialized = view.toAnnotation(annotation.getLipid());
+            assertEquals(annotation, materialized);
+            assertEquals(annotation.getScore(), materialized.getScore());
+            assertEquals(annotation.getTotalScoresApplied(), materialized.getTotalScoresApplied());
+        }
+        assertEquals(FeatureTable.NO_LIPID, table.getLipidId(2));
+        assertEquals(1.0, view.moveTo(1).getNormalizedScore(), 0d);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailWhenAColumnCannotBeOpened() throws IOException {
+        Path directory = folder.newFolder("features").toPath();
+        // a directory in place of a column file
+        Files.createDirectory(directory.resolve(FeatureTable.SCORE));
+
+        new FeatureTableWriter(directory).close();
+    }
+}
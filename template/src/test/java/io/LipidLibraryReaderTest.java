@@ -0,0 +1,58 @@
+package io;
+
+import lipid.LipidDatabase;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LipidLibraryReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadQuotedFields() throws IOException {
+        Path file = folder.newFile("lipids.csv").toPath();
+        Files.writeString(file, String.join("\n",
+                "\"compoundId\",\"name\",\"formula\",\"class\",\"carbons\",\"doubleBonds\",\"exactMass\"",
+                "1,\"PC(16:0/18:1), sn-1\",C42H82NO8P,PC,34,1,759.5778",
+                "2, \"PE \"\"36:2\"\"\" ,C41H78NO8P,PE,36,2,743.5465",
+                "\"3\",TG 54:3,C57H104O6,TG,54,3,884.7833",
+                ""));
+
+        LipidDatabase database = LipidLibraryReader.read(file);
+
+        assertEquals(3, database.size());
+        assertEquals("PE \"36:2\"", database.getLipid(0).getName());
+        assertEquals("PC(16:0/18:1), sn-1", database.getLipid(1).getName());
+        assertEquals(34, database.getLipid(1).getCarbonCount());
+        assertEquals(884.7833, database.getMass(2), 0d);
+    }
+
+    @Test
+    public void shouldSplitLikeRfc4180() {
+        assertEquals(List.of("a", "b,c", "", "d\"e"), LipidLibraryReader.split("a ,\"b,c\",,\"d\"\"e\"", ','));
+        assertEquals(List.of("a", ""), LipidLibraryReader.split("a\t", '\t'));
+    }
+
+    @Test
+    public void shouldRejectAnUnclosedQuote() throws IOException {
+        Path file = folder.newFile("lipids.csv").toPath();
+        Files.writeString(file, "1,\"PC 34:1,C42H82NO8P,PC,34,1,759.5778\n");
+        try {
+            LipidLibraryReader.read(file);
+            fail("An unclosed quote must be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(":1: quote at column 3 is not closed"));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package io;
+
+import lipid.Annotation;
+import lipid.IonizationMode;
+import lipid.Lipid;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResultWriterTest {
+
+    private static List<Annotation> annotations(int count) {
+        Lipid pc = new Lipid(1, "PC 34:1", "C42H82NO8P", "PC", 34, 1);
+        Lipid odd = new Lipid(2, "PE 36:2, \"oxidized\"", "C41H78NO8P", "PE", 36, 2);
+        List<Annotation> annotations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Annotation annotation = new Annotation(i % 2 == 0 ? pc : odd, 760.58511 + i, 80000.25, 6.5 + i * 0.01,
+                    IonizationMode.POSITIVE);
+            annotation.setAdduct(i % 3 == 0 ? null : "[M+H]+");
+            annotation.addScore(1);
+            annotation.addScore(-1);
+            annotation.addScore(1);
+            annotations.add(annotation);
+        }
+        return annotations;
+    }
+
+    @Test
+    public void shouldWriteCsvRows() throws IOException {
+        Path file = Files.createTempFile("results", ".csv");
+        try (ResultWriter writer = ResultWriter.open(file)) {
+            writer.writeAll(annotations(2));
+            assertEquals(2, writer.getRows());
+        }
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(List.of(
+                "lipid,mz,rtMin,adduct,intensity,score,normalizedScore",
+                "PC 34:1,760.5851,6.50,,80000.3,1,0.3333",
+                "\"PE 36:2, \"\"oxidized\"\"\",761.5851,6.51,[M+H]+,80000.3,1,0.3333"), lines);
+    }
+
+    @Test
+    public void shouldFormatFixedDecimalsLikeStringFormat() throws IOException {
+        Path file = Files.createTempFile("results", ".tsv");
+        double[] values = {0, -0.00001, -2.5, 0.99995, 123456.789, 1e-7, 42};
+        try (DelimitedResultWriter writer = new DelimitedResultWriter(file, '\t')) {
+            for (double value : values) {
+                writer.write(new Annotation(null, value, value, value, IonizationMode.NEGATIVE));
+            }
+        }
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(values.length + 1, lines.size());
+        for (int i = 0; i < values.length; i++) {
+            String[] fields = lines.get(1 + i).split("\t", -1);
+            assertEquals(String.format(Locale.ROOT, "%.4f", values[i]).replace("-0.0000", "0.0000"), fields[1]);
+            assertEquals(String.format(Locale.ROOT, "%.2f", values[i]).replace("-0.00", "0.00"), fields[2]);
+            assertEquals("NaN", fields[6]);
+        }
+    }
+
+    @Test
+    public void shouldReadBackBinaryBlocksAndIgnoreATruncatedBlock() throws IOException {
+        Path file = Files.createTempFile("results", ".bin");
+        int count = BinaryResultWriter.BLOCK_ROWS + 10;
+        List<Annotation> annotations = annotations(count);
+        try (ResultWriter writer = ResultWriter.open(file)) {
+            writer.writeAll(annotations);
+        }
+
+        try (BinaryResultReader reader = new BinaryResultReader(file)) {
+            for (Annotation annotation : annotations) {
+                assertTrue(reader.next());
+                assertEquals(annotation.getLipid().getName(), reader.getLipidName());
+                assertEquals(annotation.getAdduct(), reader.getAdduct());
+                assertEquals(annotation.getMz(), reader.getMz(), 0.0);
+                assertEquals(annotation.getRtMin(), reader.getRtMin(), 0.0);
+                assertEquals(annotation.getIntensity(), reader.getIntensity(), 0.0);
+                assertEquals(annotation.getScore(), reader.getScore());
+                assertEquals(annotation.getNormalizedScore(), reader.getNormalizedScore(), 0.0);
+            }
+            assertFalse(reader.next());
+        }
+
+        // A crash while writing the second block leaves the first one readable
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 8);
+        }
+        try (BinaryResultReader reader = new BinaryResultReader(file)) {
+            int rows = 0;
+            while (reader.next()) {
+                rows++;
+            }
+            assertEquals(BinaryResultWriter.BLOCK_ROWS, rows);
+        }
+    }
+
+    @Test
+    public void shouldWriteNullLipidsAsEmpty() throws IOException {
+        Path file = Files.createTempFile("results", ".bin");
+        try (ResultWriter writer = ResultWriter.open(file)) {
+            writer.write(new Annotation(null, 600.3, 95000.0, 6.8d, IonizationMode.NEGATIVE));
+            writer.flush();
+        }
+        try (BinaryResultReader reader = new BinaryResultReader(file)) {
+            assertTrue(reader.next());
+            assertNull(reader.getLipidName());
+            assertNull(reader.getAdduct());
+        }
+    }
+}
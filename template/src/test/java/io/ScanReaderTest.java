@@ -0,0 +1,220 @@
+package io;
+
+import lipid.IonizationMode;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ScanReaderTest {
+
+    private static final double[] MZ = {700.5, 722.482, 738.4564};
+    private static final double[] INTENSITY = {100000.0, 80000.0, 50000.0};
+
+    @Test
+    public void shouldReadMzMLSpectra() throws IOException {
+        String mzml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<mzML xmlns=\"http://psi.hupo.org/ms/mzml\">\n"
+                + " <referenceableParamGroupList count=\"1\">\n"
+                + "  <referenceableParamGroup id=\"positive\">\n"
+                + "   <cvParam accession=\"MS:1000130\" name=\"positive scan\" value=\"\"/>\n"
+                + "  </referenceableParamGroup>\n"
+                + " </referenceableParamGroupList>\n"
+                + " <run id=\"run\"><spectrumList count=\"2\">\n"
+                + spectrum(0, "<referenceableParamGroupRef ref=\"positive\"/>", "390.0", "UO:0000010")
+                + spectrum(1, "<cvParam accession=\"MS:1000129\" name=\"negative scan\" value=\"\"/>", "6.6", "UO:0000031")
+                + " </spectrumList>\n"
+                + " <chromatogramList count=\"1\"><chromatogram index=\"0\" id=\"TIC\"><binaryDataArrayList count=\"1\">"
+                + "<binaryDataArray><cvParam accession=\"MS:1000523\"/><cvParam accession=\"MS:1000576\"/>"
+                + "<cvParam accession=\"MS:1000595\"/><binary>" + base64(new double[]{1, 2}, 64, ByteOrder.LITTLE_ENDIAN, false)
+                + "</binary></binaryDataArray></binaryDataArrayList></chromatogram></chromatogramList>\n"
+                + " </run>\n"
+                + "</mzML>\n";
+        Path file = Files.createTempFile("scans", ".mzML");
+        Files.writeString(file, mzml);
+
+        try (ScanReader reader = ScanReader.open(file)) {
+            assertTrue(reader instanceof MzMLReader);
+            assertTrue(reader.next());
+            Scan scan = reader.getScan();
+            assertEquals(0, scan.getIndex());
+            assertEquals("scan=1", scan.getId());
+            assertEquals(1, scan.getMsLevel());
+            assertEquals(IonizationMode.POSITIVE, scan.getIonizationMode());
+            assertEquals(6.5, scan.getRtMin(), 1e-9);
+            assertEquals(3, scan.size());
+            assertArrayEquals(MZ, copy(scan.getMzArray(), scan.size()), 0.0);
+            assertArrayEquals(INTENSITY, copy(scan.getIntensityArray(), scan.size()), 1e-3);
+
+            assertTrue(reader.next());
+            assertEquals(1, scan.getIndex());
+            assertEquals(IonizationMode.NEGATIVE, scan.getIonizationMode());
+            assertEquals(6.6, scan.getRtMin(), 1e-9);
+            assertEquals(3, scan.toPeakList().size());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void shouldReadMzXMLScans() throws IOException {
+        double[] pairs = new double[MZ.length * 2];
+        for (int i = 0; i < MZ.length; i++) {
+            pairs[2 * i] = MZ[i];
+            pairs[2 * i + 1] = INTENSITY[i];
+        }
+        String mzxml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+                + "<mzXML xmlns=\"http://sashimi.sourceforge.net/schema_revision/mzXML_3.2\"><msRun scanCount=\"2\">\n"
+                + " <scan num=\"1\" msLevel=\"1\" peaksCount=\"3\" polarity=\"+\" retentionTime=\"PT390S\">\n"
+                + "  <peaks precision=\"64\" byteOrder=\"network\" contentType=\"m/z-int\" compressionType=\"zlib\">"
+                + base64(pairs, 64, ByteOrder.BIG_ENDIAN, true) + "</peaks>\n"
+                + "  <scan num=\"2\" msLevel=\"2\" peaksCount=\"3\" polarity=\"-\" retentionTime=\"PT6.6M\">\n"
+                + "   <peaks precision=\"32\" byteOrder=\"network\" pairOrder=\"m/z-int\">"
+                + base64(pairs, 32, ByteOrder.BIG_ENDIAN, false) + "</peaks>\n"
+                + "  </scan>\n"
+                + " </scan>\n"
+                + "</msRun></mzXML>\n";
+        Path file = Files.createTempFile("scans", ".mzXML");
+        Files.writeString(file, mzxml, StandardCharsets.ISO_8859_1);
+
+        try (ScanReader reader = ScanReader.open(file)) {
+            assertTrue(reader instanceof MzXMLReader);
+            assertTrue(reader.next());
+            Scan scan = reader.getScan();
+            assertEquals("1", scan.getId());
+            assertEquals(IonizationMode.POSITIVE, scan.getIonizationMode());
+            assertEquals(6.5, scan.getRtMin(), 1e-9);
+            assertArrayEquals(MZ, copy(scan.getMzArray(), scan.size()), 0.0);
+            assertArrayEquals(INTENSITY, copy(scan.getIntensityArray(), scan.size()), 0.0);
+
+            assertTrue(reader.next());
+            assertEquals("2", scan.getId());
+            assertEquals(2, scan.getMsLevel());
+            assertEquals(IonizationMode.NEGATIVE, scan.getIonizationMode());
+            assertEquals(6.6, scan.getRtMin(), 1e-9);
+            assertArrayEquals(MZ, copy(scan.getMzArray(), scan.size()), 1e-3);
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void shouldDecodeEmptyArrays() throws IOException {
+        BinaryArrayDecoder decoder = new BinaryArrayDecoder();
+        decoder.reset();
+        assertEquals(0, decoder.decode(true, 64, ByteOrder.LITTLE_ENDIAN));
+        decoder.reset();
+        assertEquals(0, decoder.decode(false, 64, ByteOrder.LITTLE_ENDIAN));
+        decoder.close();
+
+        String array = "<binaryDataArray encodedLength=\"0\"><cvParam accession=\"MS:1000523\"/>"
+                + "<cvParam accession=\"MS:1000574\"/><cvParam accession=\"%s\"/><binary/></binaryDataArray>";
+        String mzml = "<mzML><run><spectrumList count=\"1\">"
+                + "<spectrum index=\"0\" id=\"scan=1\" defaultArrayLength=\"0\"><binaryDataArrayList count=\"2\">"
+                + String.format(array, "MS:1000514") + String.format(array, "MS:1000515")
+                + "</binaryDataArrayList></spectrum></spectrumList></run></mzML>";
+        try (ScanReader reader = mzML(mzml)) {
+            assertTrue(reader.next());
+            assertEquals(0, reader.getScan().size());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void shouldRejectNumpressArrays() throws IOException {
+        for (String numpress : new String[]{"MS:1002312", "MS:1002313", "MS:1002314", "MS:1002746", "MS:1002747",
+                "MS:1002748"}) {
+            try (ScanReader reader = mzML(singleSpectrum(numpress))) {
+                reader.next();
+                fail("Numpress " + numpress + " was decoded as raw numbers");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("Unsupported compression"));
+            }
+        }
+    }
+
+    @Test
+    public void shouldIgnoreOtherArrayParams() throws IOException {
+        // Accessions near the numpress ones that do not change the encoding
+        for (String accession : new String[]{"MS:1002311", "MS:1002530", "MS:1002749"}) {
+            try (ScanReader reader = mzML(singleSpectrum(accession))) {
+                assertTrue(reader.next());
+                assertArrayEquals(MZ, copy(reader.getScan().getMzArray(), reader.getScan().size()), 0.0);
+            }
+        }
+    }
+
+    /**
+     * mzML of one spectrum whose m/z array has the extra cvParam
+     */
+    private static String singleSpectrum(String accession) throws IOException {
+        return "<mzML><run><spectrumList count=\"1\">"
+                + "<spectrum index=\"0\" id=\"scan=1\" defaultArrayLength=\"3\"><binaryDataArrayList count=\"2\">"
+                + "<binaryDataArray><cvParam accession=\"MS:1000523\"/><cvParam accession=\"MS:1000576\"/>"
+                + "<cvParam accession=\"" + accession + "\"/><cvParam accession=\"MS:1000514\"/><binary>"
+                + base64(MZ, 64, ByteOrder.LITTLE_ENDIAN, false) + "</binary></binaryDataArray>"
+                + "<binaryDataArray><cvParam accession=\"MS:1000523\"/><cvParam accession=\"MS:1000576\"/>"
+                + "<cvParam accession=\"MS:1000515\"/><binary>"
+                + base64(INTENSITY, 64, ByteOrder.LITTLE_ENDIAN, false) + "</binary></binaryDataArray>"
+                + "</binaryDataArrayList></spectrum></spectrumList></run></mzML>";
+    }
+
+    private static ScanReader mzML(String mzml) throws IOException {
+        return new MzMLReader(new ByteArrayInputStream(mzml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String spectrum(int index, String polarity, String time, String unit) throws IOException {
+        return "  <spectrum index=\"" + index + "\" id=\"scan=" + (index + 1) + "\" defaultArrayLength=\"3\">\n"
+                + "   <cvParam accession=\"MS:1000511\" name=\"ms level\" value=\"1\"/>\n"
+                + "   " + polarity + "\n"
+                + "   <scanList count=\"1\"><scan><cvParam accession=\"MS:1000016\" name=\"scan start time\" value=\""
+                + time + "\" unitAccession=\"" + unit + "\"/></scan></scanList>\n"
+                + "   <binaryDataArrayList count=\"2\">\n"
+                + "    <binaryDataArray><cvParam accession=\"MS:1000523\"/><cvParam accession=\"MS:1000574\"/>"
+                + "<cvParam accession=\"MS:1000514\"/>\n     <binary>" + base64(MZ, 64, ByteOrder.LITTLE_ENDIAN, true)
+                + "</binary></binaryDataArray>\n"
+                + "    <binaryDataArray><cvParam accession=\"MS:1000521\"/><cvParam accession=\"MS:1000576\"/>"
+                + "<cvParam accession=\"MS:1000515\"/><binary>" + base64(INTENSITY, 32, ByteOrder.LITTLE_ENDIAN, false)
+                + "</binary></binaryDataArray>\n"
+                + "   </binaryDataArrayList>\n"
+                + "  </spectrum>\n";
+    }
+
+    private static String base64(double[] values, int bits, ByteOrder order, boolean zlib) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * bits / 8).order(order);
+        for (double value : values) {
+            if (bits == 64) {
+                buffer.putDouble(value);
+            } else {
+                buffer.putFloat((float) value);
+            }
+        }
+        byte[] bytes = buffer.array();
+        if (zlib) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+                out.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+        }
+        return Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(bytes);
+    }
+
+    private static double[] copy(double[] values, int size) {
+        double[] copy = new double[size];
+        System.arraycopy(values, 0, copy, 0, size);
+        return copy;
+    }
+}
@@ -0,0 +1,87 @@
+package lipid;
+
+import adduct.AdductDescriptor;
+import adduct.AdductRegistry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The rule unit must detect the same adduct as {@link Annotation#detectAdductFromSignals(IonizationMode, double)}
+ */
+public class AdductDetectionUnitTest {
+
+    private static Annotation annotation(double mz, IonizationMode mode, double... peaks) {
+        Set<Peak> signals = new HashSet<>();
+        for (double peak : peaks) {
+            signals.add(new Peak(peak, 1000.0));
+        }
+        return new Annotation(new Lipid(1, "PC 34:1", "C42H82NO8P", "PC", 34, 1), mz, 1000.0, 6.5d, mode, signals);
+    }
+
+    private static void assertSameAdduct(List<Annotation> annotations, double mzTolerance) {
+        List<String> expected = new ArrayList<>();
+        for (Annotation annotation : annotations) {
+            expected.add(annotation.detectAdductFromSignals(annotation.getIonizationMode(), mzTolerance));
+        }
+        try (AdductDetectionSession session = new AdductDetectionSession()) {
+            session.detect(annotations, mzTolerance);
+        }
+        for (int i = 0; i < annotations.size(); i++) {
+            assertEquals(expected.get(i), annotations.get(i).getAdduct());
+        }
+    }
+
+    @Test
+    public void shouldDetectTheAdductsOfTheAdductDetectionTest() {
+        List<Annotation> annotations = List.of(
+                annotation(700.49999, IonizationMode.POSITIVE, 700.500, 722.482),
+                annotation(700.500, IonizationMode.POSITIVE, 700.500, 682.4894),
+                annotation(700.500, IonizationMode.POSITIVE, 700.500),
+                annotation(700.500, IonizationMode.NEGATIVE, 700.500, 746.5055, 734.4767));
+        assertSameAdduct(annotations, 10d);
+        assertEquals("[M+H]+", annotations.get(0).getAdduct());
+        assertEquals("[M+H]+", annotations.get(1).getAdduct());
+        assertEquals("Unknown", annotations.get(2).getAdduct());
+    }
+
+    @Test
+    public void shouldDetectLikeTheLoopOnRandomGroups() {
+        Random random = new Random(22);
+        for (double mzTolerance : new double[]{0.005, 0.2, 2}) {
+            List<Annotation> annotations = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                IonizationMode mode = random.nextBoolean() ? IonizationMode.POSITIVE : IonizationMode.NEGATIVE;
+                double mass = 500 + random.nextDouble() * 500;
+                List<AdductDescriptor> adducts = AdductRegistry.forMode(mode);
+                double mz = adducts.get(random.nextInt(adducts.size())).toMz(mass);
+                double[] peaks = new double[1 + random.nextInt(40)];
+                peaks[0] = mz;
+                for (int p = 1; p < peaks.length; p++) {
+                    peaks[p] = random.nextInt(3) == 0
+                            ? adducts.get(random.nextInt(adducts.size())).toMz(mass) + (random.nextDouble() - 0.5) * 3 * mzTolerance
+                            : 300 + random.nextDouble() * 1500;
+                }
+                annotations.add(annotation(mz, mode, peaks));
+            }
+            assertSameAdduct(annotations, mzTolerance);
+        }
+    }
+
+    @Test
+    public void shouldDetectAdductsInTheScoringSession() {
+        Annotation annotation = annotation(700.49999, IonizationMode.POSITIVE, 700.500, 722.482);
+        try (LipidScoreSession session = new LipidScoreSession()) {
+            session.add(annotation);
+            session.detectAdducts(10d);
+            session.fire();
+        }
+        assertEquals("[M+H]+", annotation.getAdduct());
+    }
+}
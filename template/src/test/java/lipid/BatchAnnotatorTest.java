@@ -0,0 +1,49 @@
+package lipid;
+
+import adduct.SortedPeakAdductDetection;
+import io.LipidLibraryReader;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchAnnotatorTest {
+
+    @Test
+    public void shouldAnnotateInParallelKeepingTheOrder() throws IOException {
+        Lipid lipid = new Lipid(1, "PC 34:1", "C42H82NO8P", "PC", 34, 1);
+        List<Annotation> features = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Peak mH = new Peak(760.5851 + i, 100000.0);
+            Peak mNa = new Peak(782.5670 + i, 80000.0);
+            double mz = i % 2 == 0 ? mH.getMz() : mNa.getMz();
+            features.add(new Annotation(lipid, mz, 80000.0, 6.5d, IonizationMode.POSITIVE, Set.of(mH, mNa)));
+        }
+        LipidDatabase database = LipidLibraryReader.read(CandidateSearchTest.writeLibrary());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BatchAnnotator annotator = new BatchAnnotator(pool, new SortedPeakAdductDetection(), 0.01,
+                    new CandidateSearch(database, 5));
+
+            List<FeatureResult> results = annotator.assignAdducts(features);
+
+            assertEquals(features.size(), results.size());
+            for (int i = 0; i < features.size(); i++) {
+                assertEquals(features.get(i), results.get(i).getAnnotation());
+                assertEquals(i % 2 == 0 ? "[M+H]+" : "[M+Na]+", features.get(i).getAdduct());
+            }
+            // Only the first feature is the PC 34:1 of the library, searched with the adduct detected
+            assertEquals(1, results.get(0).getCandidates().size());
+            assertEquals("PC 34:1", results.get(0).getCandidates().get(0).getLipid().getName());
+            assertEquals("[M+H]+", results.get(0).getCandidates().get(0).getAdduct().getName());
+            assertEquals(0, results.get(1).getCandidates().size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package lipid;
+
+import io.LipidLibraryReader;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CandidateSearchTest {
+
+    static Path writeLibrary() throws IOException {
+        Path file = Files.createTempFile("lipids", ".tsv");
+        Files.writeString(file, String.join("\n",
+                "compoundId\tname\tformula\tclass\tcarbons\tdoubleBonds\texactMass",
+                "1\tPC 34:1\tC42H82NO8P\tPC\t34\t1\t759.5778",
+                "2\tPE 36:2\tC41H78NO8P\tPE\t36\t2\t743.5465",
+                "3\tTG 54:3\tC57H104O6\tTG\t54\t3\t884.7833",
+                "4\tPI 38:4\tC47H83O13P\tPI\t38\t4\t886.5571",
+                ""));
+        return file;
+    }
+
+    @Test
+    public void shouldFindTheCandidatesOfAnMzUnderEveryAdduct() throws IOException {
+        LipidDatabase database = LipidLibraryReader.read(writeLibrary());
+        assertEquals(4, database.size());
+        assertEquals(743.5465, database.getMass(0), 0d);
+
+        CandidateSearch search = new CandidateSearch(database, 5);
+
+        List<LipidCandidate> protonated = search.search(760.5851, IonizationMode.POSITIVE);
+        assertEquals(1, protonated.size());
+        assertEquals("PC 34:1", protonated.get(0).getLipid().getName());
+        assertEquals("[M+H]+", protonated.get(0).getAdduct().getName());
+        assertTrue(protonated.get(0).getPpmError() < 5);
+
+        List<List<LipidCandidate>> batch = search.search(new double[]{782.567, 885.7906, 500.0}, IonizationMode.POSITIVE);
+        assertEquals(3, batch.size());
+        assertEquals("[M+Na]+", batch.get(0).get(0).getAdduct().getName());
+        assertEquals("TG 54:3", batch.get(1).get(0).getLipid().getName());
+        assertTrue(batch.get(2).isEmpty());
+
+        Annotation annotation = batch.get(0).get(0).toAnnotation(782.567, 1000, 7.5, IonizationMode.POSITIVE);
+        assertEquals("[M+Na]+", annotation.getAdduct());
+    }
+}
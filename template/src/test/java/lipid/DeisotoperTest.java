@@ -0,0 +1,84 @@
+package lipid;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class DeisotoperTest {
+
+    @Test
+    public void shouldCollapseIsotopeEnvelopesOntoTheMonoisotopicPeak() {
+        PeakList peaks = PeakList.of(new double[]{
+                700.500, 701.50336, 702.50671,   // [M+H]+ and two 13C isotopes
+                722.482,                          // [M+Na]+ without isotopes
+                350.754, 351.25568, 351.75736},   // [M+2H]2+ and two isotopes half a mass unit apart
+                new double[]{100000, 40000, 9000, 80000, 85000, 34000, 8000});
+
+        PeakList monoisotopic = new Deisotoper(10).deisotope(peaks);
+
+        assertEquals(3, monoisotopic.size());
+        assertEquals(350.754, monoisotopic.getMz(0), 0d);
+        assertEquals(2, monoisotopic.getCharge(0));
+        assertEquals(700.500, monoisotopic.getMz(1), 0d);
+        assertEquals(1, monoisotopic.getCharge(1));
+        assertEquals(100000, monoisotopic.getIntensity(1), 0d);
+        assertEquals(722.482, monoisotopic.getMz(2), 0d);
+        assertEquals(0, monoisotopic.getCharge(2));
+    }
+
+    @Test
+    public void shouldKeepPeaksTooIntenseToBeIsotopes() {
+        // 701.50336 is at the 13C spacing of 700.500 but ten times more intense: no molecule of about 700 Da has that
+        // many carbons
+        PeakList peaks = PeakList.of(new double[]{700.500, 701.50336, 702.50671},
+                new double[]{10000, 100000, 30000});
+
+        PeakList monoisotopic = new Deisotoper(10).deisotope(peaks);
+
+        assertEquals(2, monoisotopic.size());
+        assertEquals(700.500, monoisotopic.getMz(0), 0d);
+        assertEquals(0, monoisotopic.getCharge(0));
+        assertEquals(701.50336, monoisotopic.getMz(1), 0d);
+        assertEquals(1, monoisotopic.getCharge(1));
+    }
+
+    @Test
+    public void shouldFollowTheEnvelopeThroughDensePeaks() {
+        int noise = 2000;
+        double[] mz = new double[noise + 3];
+        double[] intensity = new double[noise + 3];
+        for (int i = 0; i < noise; i++) {
+            // noise between the isotopes, never within 10 ppm of them
+            mz[i] = 700.6 + i * 0.0004;
+            intensity[i] = 100;
+        }
+        mz[noise] = 700.500;
+        intensity[noise] = 100000;
+        mz[noise + 1] = 701.50336;
+        intensity[noise + 1] = 40000;
+        mz[noise + 2] = 702.50671;
+        intensity[noise + 2] = 9000;
+
+        PeakList monoisotopic = new Deisotoper(10, 1).deisotope(PeakList.of(mz, intensity));
+
+        assertEquals(noise + 1, monoisotopic.size());
+        assertEquals(700.500, monoisotopic.getMz(0), 0d);
+        assertEquals(1, monoisotopic.getCharge(0));
+    }
+
+    @Test
+    public void shouldDetectTheAdductAfterDeisotoping() {
+        Lipid lipid = new Lipid(1, "PC 34:1", "C42H82NO8P", "PC", 34, 1);
+        Annotation annotation = new Annotation(lipid, 700.49999d, 80000.0, 6.5d, IonizationMode.POSITIVE,
+                Set.of(new Peak(700.500, 100000.0), new Peak(701.50336, 40000.0),
+                        new Peak(722.482, 80000.0), new Peak(723.48536, 30000.0)));
+
+        new Deisotoper(10).deisotope(List.of(annotation));
+
+        assertEquals(2, annotation.getGroupedSignals().size());
+        assertEquals("[M+H]+", annotation.detectAdductFromSignals(IonizationMode.POSITIVE, 0.01));
+    }
+}
@@ -0,0 +1,118 @@
+package lipid;
+
+import adduct.NestedLoopAdductDetection;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DiagnosticTraceTest {
+
+    private final Logger rules = (Logger) DiagnosticTrace.RULES;
+    private final Logger adduct = (Logger) LoggerFactory.getLogger(NestedLoopAdductDetection.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private final Annotation annotation = annotation(700.5);
+    private final Annotation other = annotation(800.5);
+
+    private static Annotation annotation(double mz) {
+        return new Annotation(new Lipid(1, "PC 34:1", "C42H82NO8P", "PC", 34, 1), mz, 10E6, 6.5,
+                IonizationMode.POSITIVE);
+    }
+
+    @Before
+    public void setUp() {
+        DiagnosticTrace.reset();
+        appender.start();
+        for (Logger logger : new Logger[]{rules, adduct}) {
+            logger.addAppender(appender);
+            logger.setLevel(Level.TRACE);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (Logger logger : new Logger[]{rules, adduct}) {
+            logger.detachAppender(appender);
+            logger.setLevel(null);
+        }
+        appender.stop();
+        DiagnosticTrace.reset();
+    }
+
+    @Test
+    public void shouldNotTraceWhenTraceIsDisabled() {
+        rules.setLevel(Level.INFO);
+        DiagnosticTrace.ruleFired("carbons", 1, annotation, other);
+        assertEquals(0, appender.list.size());
+    }
+
+    @Test
+    public void shouldOnlyTraceTheFocusedMz() {
+        DiagnosticTrace.focus(700.5, 0.01);
+        DiagnosticTrace.ruleFired("carbons", 1, annotation, other);
+        DiagnosticTrace.ruleFired("carbons", 1, other, annotation);
+        DiagnosticTrace.ruleFired("doubleBonds", -1, annotation, other);
+
+        assertEquals(2, appender.list.size());
+        for (ILoggingEvent event : appender.list) {
+            assertTrue(event.getFormattedMessage(), event.getFormattedMessage().contains("mz=700.5000"));
+        }
+    }
+
+    @Test
+    public void shouldSampleOneOfEveryRateEvents() {
+        DiagnosticTrace.sample(3);
+        for (int i = 0; i < 9; i++) {
+            DiagnosticTrace.ruleFired("rule" + i, 1, annotation, other);
+        }
+        assertEquals(3, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().startsWith("rule0:"));
+        assertTrue(appender.list.get(1).getFormattedMessage().startsWith("rule3:"));
+        assertTrue(appender.list.get(2).getFormattedMessage().startsWith("rule6:"));
+    }
+
+    @Test
+    public void shouldNotCountTheEventsOutsideTheFocusForTheSampling() {
+        DiagnosticTrace.focus(700.5, 0.01);
+        DiagnosticTrace.sample(2);
+        DiagnosticTrace.ruleFired("first", 1, annotation, other);
+        DiagnosticTrace.ruleFired("outside", 1, other, annotation);
+        DiagnosticTrace.ruleFired("second", 1, annotation, other);
+        DiagnosticTrace.ruleFired("third", 1, annotation, other);
+
+        assertEquals(2, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().startsWith("first:"));
+        assertTrue(appender.list.get(1).getFormattedMessage().startsWith("third:"));
+    }
+
+    @Test
+    public void shouldStopAtTheLimit() {
+        DiagnosticTrace.limit(2);
+        for (int i = 0; i < 5; i++) {
+            DiagnosticTrace.ruleFired("rule" + i, 1, annotation, other);
+        }
+        assertEquals(2, appender.list.size());
+    }
+
+    @Test
+    public void shouldCountEveryDetectionCallOfAFeature() {
+        // One event per call: the second detection of the same feature is not traced
+        DiagnosticTrace.limit(1);
+        NestedLoopAdductDetection detection = new NestedLoopAdductDetection();
+        double[] signals = {700.5};
+        detection.detect(700.5, signals, 0, 1, IonizationMode.POSITIVE, 0.01);
+        int traced = appender.list.size();
+        detection.detect(700.5, signals, 0, 1, IonizationMode.POSITIVE, 0.01);
+
+        assertEquals(1, traced);
+        assertEquals(1, appender.list.size());
+    }
+}
@@ -0,0 +1,93 @@
+package lipid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EcnElutionOrderScoringTest {
+
+    /**
+     * rt = 2 + 0.5·carbons - 0.8·doubleBonds with some noise, for PC and (shifted) PE
+     */
+    private static List<Annotation> sample(Random random, int size) {
+        List<Annotation> annotations = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            boolean pc = random.nextBoolean();
+            int carbons = 30 + random.nextInt(12);
+            int doubleBonds = random.nextInt(6);
+            double rt = (pc ? 2 : 1) + 0.5 * carbons - 0.8 * doubleBonds + random.nextGaussian() * 0.02;
+            Lipid lipid = new Lipid(i, "", "", pc ? "PC" : "PE", carbons, doubleBonds);
+            annotations.add(new Annotation(lipid, 700 + i, 1000, rt, IonizationMode.POSITIVE));
+        }
+        return annotations;
+    }
+
+    @Test
+    public void shouldFitTheClassModelsDespiteOutliers() {
+        Random random = new Random(23);
+        List<Annotation> annotations = sample(random, 500);
+        // 10% misannotations far from the model
+        for (int i = 0; i < 50; i++) {
+            Annotation annotation = annotations.get(i);
+            annotations.set(i, new Annotation(annotation.getLipid(), annotation.getMz(), 1000,
+                    annotation.getRtMin() + 3 + random.nextDouble() * 5, IonizationMode.POSITIVE));
+        }
+        EcnRetentionTimeModel model = new EcnRetentionTimeModel();
+        model.addAll(annotations);
+        model.fit();
+        Lipid pc = new Lipid(-1, "PC 36:2", "", "PC", 36, 2);
+        Lipid pe = new Lipid(-2, "PE 36:2", "", "PE", 36, 2);
+        assertEquals(2 + 18 - 1.6, model.predict(pc), 0.05);
+        assertEquals(1 + 18 - 1.6, model.predict(pe), 0.05);
+        assertTrue(model.getScale(pc) < 0.06);
+
+        new EcnElutionOrderScoring().score(model);
+        for (int i = 0; i < annotations.size(); i++) {
+            Annotation annotation = annotations.get(i);
+            assertEquals(EcnElutionOrderScoring.RESOLUTION, annotation.getTotalScoresApplied());
+            if (i < 50) {
+                assertEquals(-1.0, annotation.getNormalizedScore(), 0.0);
+            } else {
+                assertTrue(annotation.getNormalizedScore() > 0);
+            }
+        }
+    }
+
+    @Test
+    public void shouldFollowAStreamOfAnnotations() {
+        Random random = new Random(24);
+        List<Annotation> annotations = sample(random, 200);
+        EcnRetentionTimeModel streaming = new EcnRetentionTimeModel();
+        for (Annotation annotation : annotations) {
+            streaming.add(annotation);
+        }
+        Annotation late = annotations.get(0);
+        assertTrue(streaming.remove(late));
+        EcnRetentionTimeModel batch = new EcnRetentionTimeModel();
+        batch.addAll(annotations.subList(1, annotations.size()));
+        Lipid lipid = new Lipid(-1, "PC 34:1", "", "PC", 34, 1);
+        assertEquals(batch.predict(lipid), streaming.predict(lipid), 1e-9);
+    }
+
+    @Test
+    public void shouldSkipSmallClassesAndConstantTerms() {
+        List<Annotation> annotations = new ArrayList<>();
+        for (int carbons = 30; carbons < 36; carbons++) {
+            // same double bonds: the model only uses the carbons
+            Lipid lipid = new Lipid(carbons, "", "", "TG", carbons, 2);
+            annotations.add(new Annotation(lipid, 800, 1000, carbons * 0.5, IonizationMode.POSITIVE));
+        }
+        Annotation alone = new Annotation(new Lipid(99, "", "", "PG", 34, 1), 700, 1000, 5, IonizationMode.POSITIVE);
+        annotations.add(alone);
+        ElutionOrderScoring.forName("ecn").score(annotations);
+        for (int i = 0; i < 6; i++) {
+            assertEquals(1.0, annotations.get(i).getNormalizedScore(), 0.0);
+        }
+        assertEquals(0, alone.getTotalScoresApplied());
+    }
+}
@@ -0,0 +1,117 @@
+package lipid;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FeatureGrouperTest {
+
+    @Test
+    public void shouldGroupCoElutingPeaks() {
+        double[] mz = {722.482, 885.79056, 700.500, 350.754, 857.7593, 738.4564};
+        double[] rt = {6.51, 10.0, 6.50, 6.52, 9.0, 6.49};
+        double[] intensity = {80000.0, 10E6, 100000.0, 85000.0, 10E7, 70000.0};
+
+        List<FeatureGroup> groups = new FeatureGrouper(0.05, 0.5).group(mz, rt, intensity);
+
+        assertEquals(3, groups.size());
+        FeatureGroup first = groups.get(0);
+        assertEquals(4, first.getSignals().size());
+        assertEquals(350.754, first.getSignals().getMz(0), 0d);
+        assertEquals(700.500, first.getMz(), 0d);
+        assertEquals(6.50, first.getRtMin(), 0d);
+        assertEquals(857.7593, groups.get(1).getMz(), 0d);
+        assertEquals(885.79056, groups.get(2).getMz(), 0d);
+
+        Annotation annotation = first.toAnnotation(new Lipid(1, "PC 34:1", "C42H82NO8P", "PC", 34, 1), IonizationMode.POSITIVE);
+        assertEquals("[M+H]+", annotation.detectAdductFromSignals(IonizationMode.POSITIVE, 0.01));
+    }
+
+    @Test
+    public void shouldSplitGroupsWiderThanTheMaximumWidth() {
+        double[] mz = {700.5, 701.5, 702.5, 703.5};
+        double[] rt = {1.0, 1.04, 1.08, 1.12};
+        double[] intensity = {1, 2, 3, 4};
+
+        List<FeatureGroup> groups = new FeatureGrouper(0.05, 0.1).group(mz, rt, intensity);
+
+        assertEquals(2, groups.size());
+        assertEquals(3, groups.get(0).getSignals().size());
+        assertEquals(1, groups.get(1).getSignals().size());
+    }
+
+    @Test
+    public void shouldGroupManySlicesLikeOneSlice() {
+        Random random = new Random(9);
+        int n = 20000;
+        double[] mz = new double[n];
+        double[] rt = new double[n];
+        double[] intensity = new double[n];
+        for (int i = 0; i < n; i++) {
+            // clusters of co-eluting peaks with gaps between most of them
+            rt[i] = (i / 8) * 0.04 + random.nextDouble() * 0.03;
+            // features of consecutive clusters are at least 0.5 mz apart
+            mz[i] = 300 + i % 1200 + random.nextDouble() * 0.5;
+            intensity[i] = random.nextDouble() * 1e6;
+        }
+
+        FeatureGrouper sliced = new FeatureGrouper(0.01, 0.2, FeatureGrouper.DEFAULT_MZ_TOLERANCE, ForkJoinPool.commonPool(), 64);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        assertTrue(sliced.sliceBoundaries(rt, order).size() > 100);
+
+        assertSameGroups(new FeatureGrouper(0.01, 0.2, FeatureGrouper.DEFAULT_MZ_TOLERANCE, ForkJoinPool.commonPool(),
+                        Integer.MAX_VALUE).group(mz, rt, intensity),
+                sliced.group(mz, rt, intensity));
+    }
+
+    @Test
+    public void shouldKeepAGapFreeRunInOneSlice() {
+        int n = 5000;
+        double[] mz = new double[n];
+        double[] rt = new double[n];
+        double[] intensity = new double[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            mz[i] = 300 + i * 0.1;
+            rt[i] = i * 0.001;
+            intensity[i] = i;
+            order[i] = i;
+        }
+
+        FeatureGrouper sliced = new FeatureGrouper(0.01, 0.5, FeatureGrouper.DEFAULT_MZ_TOLERANCE, ForkJoinPool.commonPool(), 16);
+        assertEquals(List.of(0, n), sliced.sliceBoundaries(rt, order));
+        assertSameGroups(new FeatureGrouper(0.01, 0.5).group(mz, rt, intensity), sliced.group(mz, rt, intensity));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectTheSameIonInManyScans() {
+        double[] mz = {700.5000, 722.482, 700.5012};
+        double[] rt = {6.50, 6.51, 6.52};
+        double[] intensity = {100000.0, 80000.0, 90000.0};
+
+        new FeatureGrouper(0.05, 0.5).group(mz, rt, intensity);
+    }
+
+    private static void assertSameGroups(List<FeatureGroup> expected, List<FeatureGroup> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int g = 0; g < expected.size(); g++) {
+            FeatureGroup e = expected.get(g);
+            FeatureGroup a = actual.get(g);
+            assertEquals(e.getMz(), a.getMz(), 0d);
+            assertEquals(e.getRtMin(), a.getRtMin(), 0d);
+            assertEquals(e.getIntensity(), a.getIntensity(), 0d);
+            assertEquals(e.getSignals().size(), a.getSignals().size());
+            for (int i = 0; i < e.getSignals().size(); i++) {
+                assertEquals(e.getSignals().getMz(i), a.getSignals().getMz(i), 0d);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package lipid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the native scorer against the expectations of {@link ElutionOrderTest} and against a pair by pair
+ * evaluation of the rules of lipids.drl
+ */
+public class FenwickElutionOrderScoringTest {
+
+    private final ElutionOrderScoring scoring = ElutionOrderScoring.forName("native");
+
+    private List<Annotation> score(Lipid[] lipids, double... rts) {
+        List<Annotation> annotations = new ArrayList<>();
+        for (int i = 0; i < lipids.length; i++) {
+            annotations.add(new Annotation(lipids[i], 800 + i, 10E6, rts[i], IonizationMode.POSITIVE));
+        }
+        scoring.score(annotations);
+        return annotations;
+    }
+
+    private static void assertNormalizedScores(List<Annotation> annotations, double... expected) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], annotations.get(i).getNormalizedScore(), 0.01);
+        }
+    }
+
+    private static Lipid[] carbonSeries() {
+        return new Lipid[]{
+                new Lipid(1, "TG 54:3", "C57H104O6", "TG", 54, 3),
+                new Lipid(2, "TG 52:3", "C55H100O6", "TG", 52, 3),
+                new Lipid(3, "TG 56:3", "C59H108O6", "TG", 56, 3)};
+    }
+
+    private static Lipid[] doubleBondSeries() {
+        return new Lipid[]{
+                new Lipid(1, "TG 54:3", "C57H104O6", "TG", 54, 3),
+                new Lipid(2, "TG 54:4", "C57H102O6", "TG", 54, 4),
+                new Lipid(3, "TG 54:2", "C57H106O6", "TG", 54, 2)};
+    }
+
+    private static Lipid[] classSeries() {
+        return new Lipid[]{
+                new Lipid(1, "PI 34:0", "C43H83O13P", "PI", 54, 0),
+                new Lipid(2, "PG 34:0", "C40H79O10P", "PG", 54, 0),
+                new Lipid(3, "PC 34:0", "C42H84NO8P", "PC", 54, 0)};
+    }
+
+    @Test
+    public void score1BasedOnRTCarbonNumbers() {
+        assertNormalizedScores(score(carbonSeries(), 10, 9, 11), 1, 1, 1);
+    }
+
+    @Test
+    public void score1BasedOnRTDoubleBonds() {
+        assertNormalizedScores(score(doubleBondSeries(), 10, 9, 11), 1, 1, 1);
+    }
+
+    @Test
+    public void score1BasedOnLipidType() {
+        assertNormalizedScores(score(classSeries(), 10, 9, 11), 1, 1, 1);
+    }
+
+    @Test
+    public void negativeScoreBasedOnRTNumberOfCarbons() {
+        assertNormalizedScores(score(classSeries(), 10, 9, 8), 0, 0, -1);
+    }
+
+    @Test
+    public void negativeScoreBasedOnRTDoubleBonds() {
+        assertNormalizedScores(score(doubleBondSeries(), 10, 9, 8), 0, 0, -1);
+    }
+
+    @Test
+    public void negativeScoreBasedOnLipidType() {
+        assertNormalizedScores(score(carbonSeries(), 10, 9, 8), 0, 0, -1);
+    }
+
+    @Test
+    public void shouldMatchThePairwiseRules() {
+        String[] types = {"PG", "PE", "PI", "PA", "PS", "PC", "TG", "XY", "ZZ"};
+        Random random = new Random(17);
+        for (int sample = 0; sample < 50; sample++) {
+            List<Annotation> annotations = new ArrayList<>();
+            List<Annotation> expected = new ArrayList<>();
+            int size = 1 + random.nextInt(200);
+            for (int i = 0; i < size; i++) {
+                Lipid lipid = new Lipid(i, "", "", types[random.nextInt(types.length)], 30 + random.nextInt(4),
+                        random.nextInt(3));
+                // Few distinct RTs so there are ties
+                double rt = random.nextInt(15) * 0.5;
+                annotations.add(new Annotation(lipid, 700, 1000, rt, IonizationMode.POSITIVE));
+                expected.add(new Annotation(lipid, 700, 1000, rt, IonizationMode.POSITIVE));
+            }
+            scoring.score(annotations);
+            firePairwise(expected);
+            for (int i = 0; i < size; i++) {
+                assertEquals(expected.get(i).getScore(), annotations.get(i).getScore());
+                assertEquals(expected.get(i).getTotalScoresApplied(), annotations.get(i).getTotalScoresApplied());
+            }
+        }
+    }
+
+    /**
+     * The six rules of lipids.drl evaluated for every ordered pair
+     */
+    private static void firePairwise(List<Annotation> annotations) {
+        for (Annotation a1 : annotations) {
+            Lipid l1 = a1.getLipid();
+            for (Annotation a2 : annotations) {
+                Lipid l2 = a2.getLipid();
+                if (a1 == a2) {
+                    continue;
+                }
+                boolean sameType = l1.getLipidType().equals(l2.getLipidType());
+                boolean sameCarbons = l1.getCarbonCount() == l2.getCarbonCount();
+                boolean sameDoubleBonds = l1.getDoubleBondsCount() == l2.getDoubleBondsCount();
+                boolean fires = sameType && sameDoubleBonds && l1.getCarbonCount() > l2.getCarbonCount()
+                        || sameType && sameCarbons && l1.getDoubleBondsCount() < l2.getDoubleBondsCount()
+                        || sameCarbons && sameDoubleBonds && l1.getLipidTypeRank() > l2.getLipidTypeRank();
+                if (fires && a1.getRtMin() > a2.getRtMin()) {
+                    a1.addScore(1);
+                    a2.addScore(1);
+                } else if (fires && a1.getRtMin() < a2.getRtMin()) {
+                    a1.addScore(-1);
+                    a2.addScore(-1);
+                }
+            }
+        }
+    }
+}
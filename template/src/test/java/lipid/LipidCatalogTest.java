@@ -0,0 +1,86 @@
+package lipid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LipidCatalogTest {
+
+    @Test
+    public void shouldShareOneLipidPerCompoundId() {
+        LipidCatalog catalog = new LipidCatalog();
+        Lipid lipid = catalog.getOrCreate(1, "PC 34:1", "C42H82NO8P", "PC", 34, 1);
+
+        assertSame(lipid, catalog.getOrCreate(1, "PC 34:1", "C42H82NO8P", "PC", 34, 1));
+        assertSame(lipid, catalog.intern(new Lipid(1, "PC 34:1", "C42H82NO8P", "PC", 34, 1)));
+        assertSame(lipid, catalog.get(1));
+        assertEquals(1, catalog.size());
+    }
+
+    @Test
+    public void shouldCarryTheElutionRankInTheClass() {
+        Lipid pg = new Lipid(2, "PG 34:0", "C40H79O10P", "PG", 34, 0);
+        Lipid pc = new Lipid(3, "PC 34:0", "C42H84NO8P", "PC", 34, 0);
+        Lipid tg = new Lipid(4, "TG 54:3", "C57H104O6", "TG", 54, 3);
+
+        assertEquals(LipidClass.PG, pg.getLipidClass());
+        assertEquals(1, pg.getLipidTypeRank());
+        assertEquals(6, pc.getLipidTypeRank());
+        assertEquals(100, tg.getLipidTypeRank());
+        assertEquals(LipidClass.OTHER, new Lipid(5, "XY 34:0", "", "XY", 34, 0).getLipidClass());
+    }
+
+    @Test
+    public void shouldJoinOnPackedKeys() {
+        Lipid tg543 = new Lipid(1, "TG 54:3", "C57H104O6", "TG", 54, 3);
+        Lipid tg523 = new Lipid(2, "TG 52:3", "C55H100O6", "TG", 52, 3);
+        Lipid tg544 = new Lipid(3, "TG 54:4", "C57H102O6", "TG", 54, 4);
+        Lipid pc543 = new Lipid(4, "PC 54:3", "", "PC", 54, 3);
+        Lipid xy543 = new Lipid(5, "XY 54:3", "", "XY", 54, 3);
+        Lipid zz543 = new Lipid(6, "ZZ 54:3", "", "ZZ", 54, 3);
+
+        assertEquals(tg543.getClassDoubleBondsKey(), tg523.getClassDoubleBondsKey());
+        assertTrue(tg543.getClassDoubleBondsKey() != tg544.getClassDoubleBondsKey());
+        assertEquals(tg543.getClassCarbonsKey(), tg544.getClassCarbonsKey());
+        assertTrue(tg543.getClassCarbonsKey() != tg523.getClassCarbonsKey());
+        assertEquals(tg543.getCarbonsDoubleBondsKey(), pc543.getCarbonsDoubleBondsKey());
+        assertTrue(tg543.getKey() != pc543.getKey());
+        assertTrue(xy543.getKey() != zz543.getKey());
+    }
+
+    /**
+     * The rule buckets must contain exactly the pairs of the original field by field join constraints
+     */
+    @Test
+    public void shouldBucketLikeTheFieldJoins() {
+        String[] types = {"PG", "PE", "PC", "TG", "XY"};
+        Random random = new Random(16);
+        List<Annotation> annotations = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Lipid lipid = new Lipid(i, "", "", types[random.nextInt(types.length)], 30 + random.nextInt(6),
+                    random.nextInt(4));
+            annotations.add(new Annotation(lipid, 700, 1000, random.nextInt(20), IonizationMode.POSITIVE));
+        }
+        for (Annotation a1 : annotations) {
+            Lipid l1 = a1.getLipid();
+            for (Annotation a2 : annotations) {
+                Lipid l2 = a2.getLipid();
+                boolean sameType = l1.getLipidType().equals(l2.getLipidType());
+                boolean sameCarbons = l1.getCarbonCount() == l2.getCarbonCount();
+                boolean sameDoubleBonds = l1.getDoubleBondsCount() == l2.getDoubleBondsCount();
+                assertEquals(sameType && sameDoubleBonds, a1.getClassDoubleBondsKey() == a2.getClassDoubleBondsKey());
+                assertEquals(sameType && sameCarbons, a1.getClassCarbonsKey() == a2.getClassCarbonsKey());
+                assertEquals(sameCarbons && sameDoubleBonds,
+                        a1.getCarbonsDoubleBondsKey() == a2.getCarbonsDoubleBondsKey());
+                assertEquals(l1.getLipidTypeRank() > l2.getLipidTypeRank(),
+                        a1.getLipidTypeRank() > a2.getLipidTypeRank());
+            }
+        }
+    }
+}
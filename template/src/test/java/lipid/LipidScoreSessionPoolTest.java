@@ -0,0 +1,66 @@
+package lipid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+public class LipidScoreSessionPoolTest {
+
+    private static List<Annotation> carbonSample(double rt1, double rt2, double rt3) {
+        Lipid lipid1 = new Lipid(1, "TG 54:3", "C57H104O6", "TG", 54, 3);
+        Lipid lipid2 = new Lipid(2, "TG 52:3", "C55H100O6", "TG", 52, 3);
+        Lipid lipid3 = new Lipid(3, "TG 56:3", "C59H108O6", "TG", 56, 3);
+        return List.of(
+                new Annotation(lipid1, 885.79056, 10E6, rt1, IonizationMode.POSITIVE),
+                new Annotation(lipid2, 857.7593, 10E7, rt2, IonizationMode.POSITIVE),
+                new Annotation(lipid3, 913.822, 10E5, rt3, IonizationMode.POSITIVE));
+    }
+
+    @Test
+    public void shouldIsolateConsecutiveSamplesOfOneSession() {
+        try (LipidScoreSessionPool pool = new LipidScoreSessionPool(1)) {
+            List<Annotation> first = carbonSample(10, 9, 11);
+            List<Annotation> second = carbonSample(10, 9, 8);
+            pool.score(first);
+            pool.score(second);
+
+            for (Annotation annotation : first) {
+                assertEquals(1.0, annotation.getNormalizedScore(), 0.01);
+                assertEquals(2, annotation.getTotalScoresApplied());
+            }
+            assertEquals(0d, second.get(0).getNormalizedScore(), 0.01);
+            assertEquals(0d, second.get(1).getNormalizedScore(), 0.01);
+            assertEquals(-1.0, second.get(2).getNormalizedScore(), 0.01);
+            assertEquals(2, second.get(2).getTotalScoresApplied());
+        }
+    }
+
+    @Test
+    public void shouldScoreSamplesFromManyThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (LipidScoreSessionPool pool = new LipidScoreSessionPool(2)) {
+            List<Future<List<Annotation>>> samples = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                samples.add(executor.submit(() -> {
+                    List<Annotation> sample = carbonSample(10, 9, 11);
+                    pool.score(sample);
+                    return sample;
+                }));
+            }
+            for (Future<List<Annotation>> sample : samples) {
+                for (Annotation annotation : sample.get()) {
+                    assertEquals(2, annotation.getScore());
+                    assertEquals(2, annotation.getTotalScoresApplied());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
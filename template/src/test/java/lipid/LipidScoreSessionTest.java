@@ -0,0 +1,86 @@
+package lipid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LipidScoreSessionTest {
+
+    private static final String[] TYPES = {"PG", "PE", "PC", "TG"};
+
+    private static Annotation randomAnnotation(Random random, int id) {
+        Lipid lipid = new Lipid(id, "", "", TYPES[random.nextInt(TYPES.length)], 34 + random.nextInt(3),
+                random.nextInt(3));
+        return new Annotation(lipid, 700 + id, 1000, random.nextInt(10), IonizationMode.POSITIVE);
+    }
+
+    /**
+     * Scores copies of the annotations from scratch and compares them with the incrementally kept scores
+     */
+    private static void assertScoredFromScratch(List<Annotation> annotations) {
+        List<Annotation> copies = new ArrayList<>();
+        for (Annotation annotation : annotations) {
+            copies.add(new Annotation(annotation.getLipid(), annotation.getMz(), annotation.getIntensity(),
+                    annotation.getRtMin(), annotation.getIonizationMode()));
+        }
+        new FenwickElutionOrderScoring().score(copies);
+        for (int i = 0; i < annotations.size(); i++) {
+            assertEquals(copies.get(i).getScore(), annotations.get(i).getScore());
+            assertEquals(copies.get(i).getTotalScoresApplied(), annotations.get(i).getTotalScoresApplied());
+        }
+    }
+
+    @Test
+    public void shouldKeepTheScoresOfAStreamUpToDate() {
+        Random random = new Random(19);
+        List<Annotation> present = new ArrayList<>();
+        List<Annotation> removed = new ArrayList<>();
+        try (LipidScoreSession session = new LipidScoreSession()) {
+            for (int step = 0; step < 20; step++) {
+                for (int i = 0; i < 5; i++) {
+                    Annotation annotation = randomAnnotation(random, step * 5 + i);
+                    session.add(annotation);
+                    present.add(annotation);
+                }
+                session.fire();
+                for (int i = 0; i < 2; i++) {
+                    Annotation annotation = present.remove(random.nextInt(present.size()));
+                    assertTrue(session.remove(annotation));
+                    removed.add(annotation);
+                }
+                session.fire();
+                assertEquals(present.size(), session.size());
+                assertScoredFromScratch(present);
+            }
+            for (Annotation annotation : removed) {
+                assertFalse(session.remove(annotation));
+                assertEquals(0, annotation.getScore());
+                assertEquals(0, annotation.getTotalScoresApplied());
+            }
+        }
+    }
+
+    @Test
+    public void shouldKeepTheScoresWhenTheSampleEnds() {
+        Lipid lipid1 = new Lipid(1, "TG 54:3", "C57H104O6", "TG", 54, 3);
+        Lipid lipid2 = new Lipid(2, "TG 52:3", "C55H100O6", "TG", 52, 3);
+        Annotation annotation1 = new Annotation(lipid1, 885.79056, 10E6, 10d, IonizationMode.POSITIVE);
+        Annotation annotation2 = new Annotation(lipid2, 857.7593, 10E7, 9d, IonizationMode.POSITIVE);
+        try (LipidScoreSession session = new LipidScoreSession()) {
+            session.add(annotation1);
+            session.add(annotation2);
+            session.fire();
+            session.clear();
+            assertEquals(0, session.size());
+            assertEquals(0, session.getScoreEvidence().size());
+        }
+        assertEquals(1.0, annotation1.getNormalizedScore(), 0.01);
+        assertEquals(1.0, annotation2.getNormalizedScore(), 0.01);
+    }
+}
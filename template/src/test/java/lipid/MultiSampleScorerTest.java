@@ -0,0 +1,128 @@
+package lipid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MultiSampleScorerTest {
+
+    private static List<List<Annotation>> samples(long seed) {
+        String[] types = {"PG", "PE", "PI", "PC", "TG"};
+        Random random = new Random(seed);
+        List<List<Annotation>> samples = new ArrayList<>();
+        for (int s = 0; s < 100; s++) {
+            List<Annotation> sample = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                Lipid lipid = new Lipid(i, "", "", types[random.nextInt(types.length)], 34 + random.nextInt(3),
+                        random.nextInt(3));
+                sample.add(new Annotation(lipid, 700 + i, 1000, random.nextInt(20) * 0.5, IonizationMode.POSITIVE));
+            }
+            samples.add(sample);
+        }
+        return samples;
+    }
+
+    @Test
+    public void shouldScoreLikeASequentialRun() throws InterruptedException {
+        List<List<Annotation>> sequential = samples(20);
+        ElutionOrderScoring scoring = new FenwickElutionOrderScoring();
+        for (List<Annotation> sample : sequential) {
+            scoring.score(sample);
+        }
+        List<List<Annotation>> virtual = samples(20);
+        try (MultiSampleScorer scorer = MultiSampleScorer.virtualThreads(8, scoring)) {
+            scorer.scoreAll(virtual);
+        }
+        List<List<Annotation>> platform = samples(20);
+        try (MultiSampleScorer scorer = MultiSampleScorer.platformThreads(4, scoring)) {
+            scorer.scoreAll(platform);
+        }
+        assertSameScores(sequential, virtual);
+        assertSameScores(sequential, platform);
+    }
+
+    @Test
+    public void shouldScoreWithTheRuleUnitOnVirtualThreadsLikeASequentialRun() throws InterruptedException {
+        List<List<Annotation>> sequential = samples(21);
+        ElutionOrderScoring scoring = new RuleUnitElutionOrderScoring();
+        for (List<Annotation> sample : sequential) {
+            scoring.score(sample);
+        }
+        // Default scorer: a new LipidScoreUnit per sample on its own virtual thread
+        List<List<Annotation>> virtual = samples(21);
+        try (MultiSampleScorer scorer = MultiSampleScorer.virtualThreads(8)) {
+            scorer.scoreAll(virtual);
+        }
+        assertSameScores(sequential, virtual);
+    }
+
+    private static void assertSameScores(List<List<Annotation>> expected, List<List<Annotation>> actual) {
+        for (int s = 0; s < expected.size(); s++) {
+            for (int i = 0; i < expected.get(s).size(); i++) {
+                Annotation annotation = expected.get(s).get(i);
+                assertEquals(annotation.getScore(), actual.get(s).get(i).getScore());
+                assertEquals(annotation.getTotalScoresApplied(), actual.get(s).get(i).getTotalScoresApplied());
+            }
+        }
+    }
+
+    @Test
+    public void shouldLimitTheSamplesScoredAtOnce() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maximum = new AtomicInteger();
+        ElutionOrderScoring scoring = annotations -> {
+            maximum.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+        };
+        try (MultiSampleScorer scorer = MultiSampleScorer.virtualThreads(3, scoring)) {
+            scorer.scoreAll(samples(21));
+        }
+        assertTrue(maximum.get() <= 3);
+    }
+
+    @Test
+    public void shouldAccumulateConcurrentScoresWithoutLosingUpdates() throws InterruptedException {
+        Annotation annotation = new Annotation(new Lipid(1, "PC 34:1", "", "PC", 34, 1), 760.585, 1000, 6,
+                IonizationMode.POSITIVE);
+        int threads = 8;
+        int updates = 10_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int delta = t % 2 == 0 ? 1 : -1;
+            workers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < updates; i++) {
+                    annotation.addScore(delta);
+                }
+                annotation.addScores(3 * delta, 2);
+                annotation.addScores(-3 * delta, -2);
+            }));
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(0, annotation.getScore());
+        assertEquals(threads * updates, annotation.getTotalScoresApplied());
+        annotation.setScore(-5);
+        assertEquals(-5, annotation.getScore());
+        assertEquals(threads * updates, annotation.getTotalScoresApplied());
+    }
+}
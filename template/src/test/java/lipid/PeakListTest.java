@@ -0,0 +1,57 @@
+package lipid;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PeakListTest {
+
+    @Test
+    public void shouldSortAndRemoveDuplicatedMz() {
+        PeakList peaks = PeakList.of(List.of(new Peak(722.482, 80000.0), new Peak(700.500, 100000.0),
+                new Peak(722.482, 1.0), new Peak(350.754, 85000.0)));
+
+        assertEquals(3, peaks.size());
+        assertEquals(350.754, peaks.getMz(0), 0d);
+        assertEquals(700.500, peaks.getMz(1), 0d);
+        assertEquals(722.482, peaks.getMz(2), 0d);
+        assertEquals(80000.0, peaks.getIntensity(2), 0d);
+    }
+
+    @Test
+    public void shouldAnswerRangeQueries() {
+        PeakList peaks = PeakList.of(new double[]{700.5, 350.754, 722.482, 738.4564}, new double[]{1, 2, 3, 4});
+
+        assertEquals(2, peaks.countInRange(700.0, 723.0));
+        assertEquals(0, peaks.countInRange(400.0, 500.0));
+        assertEquals(722.482, peaks.range(710.0, 730.0).getMz(0), 0d);
+        assertSame(PeakList.EMPTY, peaks.range(400.0, 500.0));
+        assertEquals(1, peaks.indexOf(700.5));
+        assertTrue(peaks.indexOf(700.6) < 0);
+    }
+
+    @Test
+    public void groupedSignalsShouldBeASortedView() {
+        Lipid lipid = new Lipid(1, "PC 34:1", "C42H82NO8P", "PC", 34, 1);
+        Peak mH = new Peak(700.500, 100000.0);
+        Peak mNa = new Peak(722.482, 80000.0);
+        Annotation annotation = new Annotation(lipid, 700.5, 100000.0, 6.5d, IonizationMode.POSITIVE, Set.of(mNa, mH));
+
+        Set<Peak> signals = annotation.getGroupedSignals();
+        assertEquals(2, signals.size());
+        assertTrue(signals.contains(new Peak(722.482, 0d)));
+        assertFalse(signals.contains(new Peak(722.483, 0d)));
+        Iterator<Peak> iterator = signals.iterator();
+        assertEquals(mH, iterator.next());
+        assertEquals(mNa, iterator.next());
+
+        assertTrue(new Annotation(lipid, 700.5, 1d, 6.5d, IonizationMode.POSITIVE).getGroupedSignals().isEmpty());
+    }
+}
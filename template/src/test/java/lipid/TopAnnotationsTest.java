@@ -0,0 +1,71 @@
+package lipid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TopAnnotationsTest {
+
+    private static Annotation scored(int id, double mz, double rt, int score, int applied) {
+        Annotation annotation = new Annotation(new Lipid(id, "L" + id, "", "PC", 30 + id, 0), mz, 1000, rt,
+                IonizationMode.POSITIVE);
+        annotation.addScores(score, applied);
+        return annotation;
+    }
+
+    @Test
+    public void shouldSelectTheBestLikeAFullSort() {
+        Random random = new Random(21);
+        List<Annotation> annotations = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int applied = random.nextInt(6);
+            annotations.add(scored(i, 700, 5, applied == 0 ? 0 : random.nextInt(2 * applied + 1) - applied, applied));
+        }
+        List<Annotation> sorted = new ArrayList<>(annotations);
+        sorted.sort(TopAnnotations.BEST_FIRST);
+        for (int k : new int[]{0, 1, 10, 999, 1000, 2000}) {
+            List<Annotation> best = TopAnnotations.select(annotations, k);
+            assertEquals(Math.min(k, annotations.size()), best.size());
+            for (int i = 0; i < best.size(); i++) {
+                assertEquals(0, TopAnnotations.BEST_FIRST.compare(sorted.get(i), best.get(i)));
+            }
+        }
+        // Unscored annotations come last
+        assertTrue(Double.isNaN(sorted.get(sorted.size() - 1).getNormalizedScore()));
+    }
+
+    @Test
+    public void shouldRankTheCandidatesOfEachFeature() {
+        Annotation bestOfFirst = scored(1, 760.585, 6.5, 2, 2);
+        Annotation secondOfFirst = scored(2, 760.585, 6.5, 1, 3);
+        Annotation worstOfFirst = scored(3, 760.585, 6.5, -1, 1);
+        Annotation onlyOfSecond = scored(4, 782.567, 7.1, 0, 0);
+        try (LipidScoreSession session = new LipidScoreSession()) {
+            session.addAll(List.of(worstOfFirst, onlyOfSecond, bestOfFirst, secondOfFirst));
+
+            List<Annotation> first = session.topK(760.585, 6.5, 2);
+            assertEquals(2, first.size());
+            assertSame(bestOfFirst, first.get(0));
+            assertSame(secondOfFirst, first.get(1));
+            assertTrue(session.topK(700, 6.5, 2).isEmpty());
+
+            List<FeatureRanking> rankings = session.topKPerFeature(1).collect(Collectors.toList());
+            assertEquals(2, rankings.size());
+            assertEquals(760.585, rankings.get(0).getMz(), 0.0);
+            assertSame(bestOfFirst, rankings.get(0).getBest().get(0));
+            assertSame(onlyOfSecond, rankings.get(1).getBest().get(0));
+
+            assertSame(bestOfFirst, session.topK(1).get(0));
+            session.remove(bestOfFirst);
+            assertSame(secondOfFirst, session.topK(760.585, 6.5, 3).get(0));
+            assertEquals(2, session.topK(760.585, 6.5, 3).size());
+        }
+    }
+}
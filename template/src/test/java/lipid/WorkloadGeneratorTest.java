@@ -0,0 +1,103 @@
+package lipid;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WorkloadGeneratorTest {
+
+    private static List<Annotation> workload(long seed, double rtNoise, double inversionRate, int features) {
+        return new WorkloadGenerator(seed, IonizationMode.POSITIVE, rtNoise, inversionRate).stream(features)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void shouldRepeatTheWorkloadOfASeed() {
+        List<Annotation> first = workload(7, 0.1, 0.02, 500);
+        List<Annotation> second = workload(7, 0.1, 0.02, 500);
+        for (int i = 0; i < first.size(); i++) {
+            Annotation a = first.get(i);
+            Annotation b = second.get(i);
+            assertEquals(a.getLipid().getName(), b.getLipid().getName());
+            assertEquals(a.getMz(), b.getMz(), 0);
+            assertEquals(a.getRtMin(), b.getRtMin(), 0);
+            assertEquals(a.getPeaks().size(), b.getPeaks().size());
+        }
+    }
+
+    @Test
+    public void shouldComputeTheFormulaAndMassOfTheLipids() {
+        assertEquals("C42H82NO8P", WorkloadGenerator.formula(LipidClass.PC, 34, 1));
+        assertEquals("C39H76NO8P", WorkloadGenerator.formula(LipidClass.PE, 34, 1));
+        assertEquals("C55H102O6", WorkloadGenerator.formula(LipidClass.TG, 52, 2));
+        assertEquals(759.5778, WorkloadGenerator.monoisotopicMass(LipidClass.PC, 34, 1), 0.001);
+    }
+
+    @Test
+    public void shouldFollowTheElutionOrderWithoutNoise() {
+        List<Annotation> annotations = workload(11, 0, 0, 2000);
+        ElutionOrderScoring.forName("native").score(annotations);
+        int scored = 0;
+        for (Annotation annotation : annotations) {
+            if (annotation.getTotalScoresApplied() > 0) {
+                assertEquals(annotation.toString(), 1.0, annotation.getNormalizedScore(), 0);
+                scored++;
+            }
+        }
+        assertTrue(scored > 1000);
+    }
+
+    @Test
+    public void shouldInvertTheRequestedFraction() {
+        List<Annotation> annotations = workload(11, 0, 0.1, 2000);
+        int inverted = 0;
+        for (Annotation annotation : annotations) {
+            Lipid lipid = annotation.getLipid();
+            double expected = WorkloadGenerator.expectedRetentionTime(lipid.getLipidClass(), lipid.getCarbonCount(),
+                    lipid.getDoubleBondsCount());
+            if (Math.abs(annotation.getRtMin() - expected) > 1e-9) {
+                inverted++;
+            }
+        }
+        assertEquals(200, inverted, 40);
+
+        ElutionOrderScoring.forName("native").score(annotations);
+        assertTrue(annotations.stream().anyMatch(a -> a.getNormalizedScore() < 0));
+    }
+
+    @Test
+    public void shouldGroupAdductsAndIsotopesOfTheFeature() {
+        int detected = 0;
+        for (Annotation annotation : workload(3, 0.1, 0.02, 300)) {
+            PeakList peaks = annotation.getPeaks();
+            // the ion and its two isotopes at least
+            assertTrue(peaks.size() >= 3);
+            assertTrue(peaks.indexOf(annotation.getMz()) >= 0);
+            String adduct = annotation.detectAdductFromSignals(IonizationMode.POSITIVE, 0.01);
+            if (peaks.size() > 3 && adduct.startsWith("[")) {
+                assertEquals("[M+H]+", adduct);
+                detected++;
+            }
+        }
+        assertTrue(detected > 100);
+    }
+
+    @Test
+    public void shouldEmitDimerSignals() {
+        int dimers = 0;
+        for (Annotation annotation : workload(5, 0.1, 0.02, 1000)) {
+            double mass = WorkloadGenerator.monoisotopicMass(annotation.getLipid().getLipidClass(),
+                    annotation.getLipid().getCarbonCount(), annotation.getLipid().getDoubleBondsCount());
+            double dimerMz = 2 * mass + 1.007276;
+            if (annotation.getPeaks().countInRange(dimerMz - 1e-4, dimerMz + 1e-4) > 0) {
+                dimers++;
+            }
+        }
+        // MULTIMER_PROBABILITY of 5%
+        assertTrue("dimers: " + dimers, dimers > 20 && dimers < 100);
+    }
+}